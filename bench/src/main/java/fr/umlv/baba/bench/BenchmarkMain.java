@@ -0,0 +1,22 @@
+package fr.umlv.baba.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks with the options of the JMH command line, the GC profiler is always added
+ * so each result comes with its allocation rate and its number of bytes allocated by operation.
+ *
+ * @see BoardBenchmark
+ */
+public class BenchmarkMain {
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    var options = new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build();
+    new Runner(options).run();
+  }
+}
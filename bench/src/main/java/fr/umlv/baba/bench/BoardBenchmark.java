@@ -0,0 +1,171 @@
+package fr.umlv.baba.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.umlv.baba.BinaryLevelFormat;
+import fr.umlv.baba.Board;
+import fr.umlv.baba.CoordSet;
+import fr.umlv.baba.Direction;
+import fr.umlv.baba.Elements;
+import fr.umlv.baba.Item;
+import fr.umlv.baba.Operator;
+import fr.umlv.baba.Rule;
+import fr.umlv.baba.RuleManager;
+import fr.umlv.baba.SaverLoader;
+import fr.umlv.baba.Type;
+
+/**
+ * BoardBenchmark measures the hot paths of the engine on level_0 and on synthetic rooms (see SyntheticLevels).
+ * A move is a turn : the move then the refresh of the rules, which is skipped when no word moved.
+ * The moves go back and forth so the boards stay in the same states during a measure.
+ *
+ * @see Board
+ * @see SyntheticLevels
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BoardBenchmark {
+  @Param({ "level_0", "33x18", "200x200", "2000x2000" })
+  public String size;
+
+  private Path singleLevel;
+  private Path singleBinary;
+  private Board single;
+  private Board crowd;
+  private Board chain;
+  private Direction singleDirection = Direction.RIGHT;
+  private Direction crowdDirection = Direction.RIGHT;
+  private long[] cells;
+  private CoordSet words;
+  private int isCoord = -1;
+
+  @Setup
+  public void setup() throws IOException {
+    singleLevel = SyntheticLevels.write(size, SyntheticLevels.Kind.SINGLE);
+    single = load(singleLevel, 0);
+    singleBinary = Files.createTempFile("baba-" + size + "-", ".baba");
+    singleBinary.toFile().deleteOnExit();
+    BinaryLevelFormat.save(single, singleBinary);
+    crowd = load(SyntheticLevels.write(size, SyntheticLevels.Kind.CROWD), 0);
+    chain = load(SyntheticLevels.write(size, SyntheticLevels.Kind.CHAIN), 1 << 20);
+    var xMax = single.getXMax();
+    cells = new long[xMax * single.getYMax()];
+    words = new CoordSet(cells.length);
+    single.forEachElement((element, coord) -> {
+      cells[coord] |= Elements.bit(element);
+      if(element.getType() != Type.ITEM) {
+        words.add(coord);
+      }
+      if(element == Operator.IS) {
+        isCoord = coord;
+      }
+    });
+  }
+
+  /**
+   * Load a level with its rules refreshed.
+   * @param level
+   *              The path of the level.
+   * @param journalLimit
+   *              The memory of the undo journal, 0 to not record the turns.
+   * @return the board.
+   */
+  private static Board load(Path level, long journalLimit) {
+    var board = SaverLoader.configureLevel(level);
+    board.setJournalLimit(journalLimit);
+    board.refreshRules();
+    return board;
+  }
+
+  /**
+   * Give the opposite of a horizontal direction.
+   * @param direction
+   *              LEFT or RIGHT.
+   * @return RIGHT or LEFT.
+   */
+  private static Direction back(Direction direction) {
+    return direction == Direction.RIGHT ? Direction.LEFT : Direction.RIGHT;
+  }
+
+  @Benchmark
+  public long moveSingleYou() {
+    single.move(singleDirection);
+    single.refreshRules();
+    singleDirection = back(singleDirection);
+    return single.stateHash();
+  }
+
+  @Benchmark
+  public long moveManyYou() {
+    crowd.move(crowdDirection);
+    crowd.refreshRules();
+    crowdDirection = back(crowdDirection);
+    return crowd.stateHash();
+  }
+
+  @Benchmark
+  public long pushChainAndUndo() {
+    chain.move(Direction.RIGHT);
+    chain.refreshRules();
+    chain.undo();
+    return chain.stateHash();
+  }
+
+  @Benchmark
+  public long refreshRules() {
+    single.add(Operator.IS, isCoord);
+    single.refreshRules();
+    return single.stateHash();
+  }
+
+  @Benchmark
+  public HashMap<Item, Set<Rule>> searchRules() {
+    return RuleManager.searchRules(cells, words, single.getXMax());
+  }
+
+  @Benchmark
+  public boolean isWin() {
+    return single.isWin();
+  }
+
+  @Benchmark
+  public boolean isLoose() {
+    return single.isLoose();
+  }
+
+  @Benchmark
+  public boolean isValid() {
+    return single.isValid();
+  }
+
+  @Benchmark
+  public Board configureLevel() {
+    return SaverLoader.configureLevel(singleLevel);
+  }
+
+  @Benchmark
+  public Board loadBinaryLevel() throws IOException {
+    return BinaryLevelFormat.load(singleBinary);
+  }
+}
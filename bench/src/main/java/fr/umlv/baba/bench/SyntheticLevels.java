@@ -0,0 +1,140 @@
+package fr.umlv.baba.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+
+/**
+ * SyntheticLevels writes level files in the format of SaverLoader for the benchmarks : a room surrounded by walls,
+ * with the rules BABA IS YOU, WALL IS STOP, ROCK IS PUSH and FLAG IS WIN written in the second range and a FLAG in the last corner.
+ *
+ * @see fr.umlv.baba.SaverLoader
+ */
+final class SyntheticLevels {
+  /**
+   * Where the YOU elements are in the room.
+   */
+  enum Kind {
+    /**
+     * A single BABA in the middle of the room.
+     */
+    SINGLE,
+    /**
+     * A BABA every four squares of every four ranges, a sixteenth of the room.
+     */
+    CROWD,
+    /**
+     * A BABA at the left of a range of rocks as long as half of the room.
+     */
+    CHAIN
+  }
+
+  private SyntheticLevels() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Write a level file of a size like "33x18".
+   * @param size
+   *              The size of the room, "level_0" for the level of the game.
+   * @param kind
+   *              Where the YOU elements are.
+   * @return the path of the level, a temporary file for a synthetic room.
+   * @throws IOException
+   *              If the file can't be written.
+   */
+  static Path write(String size, Kind kind) throws IOException {
+    Objects.requireNonNull(size);
+    Objects.requireNonNull(kind);
+    if(size.equals("level_0")) {
+      for(var path: new Path[] { Path.of("levels/level_0.txt"), Path.of("../levels/level_0.txt") }) {
+        if(Files.exists(path)) {
+          return path;
+        }
+      }
+      throw new IOException("levels/level_0.txt not found, run from the project or the bench directory");
+    }
+    var tokens = size.split("x");
+    if(tokens.length != 2) {
+      throw new IllegalArgumentException("The size of a synthetic room is like 33x18");
+    }
+    var xMax = Integer.parseInt(tokens[0]);
+    var yMax = Integer.parseInt(tokens[1]);
+    if(xMax < 17 || yMax < 8) {
+      throw new IllegalArgumentException("A synthetic room has at least 17x8 squares");
+    }
+    var path = Files.createTempFile("baba-" + size + "-" + kind.name().toLowerCase() + "-", ".txt");
+    Files.write(path, lines(xMax, yMax, kind), StandardCharsets.UTF_8);
+    path.toFile().deleteOnExit();
+    return path;
+  }
+
+  /**
+   * Build the lines of a synthetic level.
+   * @param xMax
+   *              The number of squares in a range.
+   * @param yMax
+   *              The number of squares in a column.
+   * @param kind
+   *              Where the YOU elements are.
+   * @return the lines of the level file.
+   */
+  private static ArrayList<String> lines(int xMax, int yMax, Kind kind) {
+    var elements = new LinkedHashMap<String, StringBuilder>();
+    for(var x = 0; x < xMax; x++) {
+      add(elements, "I#WALL", x);
+      add(elements, "I#WALL", (yMax - 1) * xMax + x);
+    }
+    for(var y = 1; y < yMax - 1; y++) {
+      add(elements, "I#WALL", y * xMax);
+      add(elements, "I#WALL", y * xMax + xMax - 1);
+    }
+    var coord = xMax + 1;
+    for(var sentence: new String[][] { { "N#TBABA", "P#YOU" }, { "N#TWALL", "P#STOP" }, { "N#TROCK", "P#PUSH" }, { "N#TFLAG", "P#WIN" } }) {
+      add(elements, sentence[0], coord);
+      add(elements, "O#IS", coord + 1);
+      add(elements, sentence[1], coord + 2);
+      coord += 4;
+    }
+    add(elements, "I#FLAG", (yMax - 2) * xMax + xMax - 2);
+    var middle = yMax / 2 * xMax;
+    switch(kind) {
+      case SINGLE -> add(elements, "I#BABA", middle + xMax / 2);
+      case CROWD -> {
+        for(var y = 4; y < yMax - 2; y += 4) {
+          for(var x = 2; x < xMax - 2; x += 4) {
+            add(elements, "I#BABA", y * xMax + x);
+          }
+        }
+      }
+      case CHAIN -> {
+        add(elements, "I#BABA", middle + 1);
+        for(var x = 2; x < 2 + (xMax - 4) / 2; x++) {
+          add(elements, "I#ROCK", middle + x);
+        }
+      }
+    }
+    var lines = new ArrayList<String>();
+    lines.add(xMax + "#" + yMax);
+    elements.forEach((element, coords) -> lines.add(element + coords));
+    return lines;
+  }
+
+  /**
+   * Add a coordinate to the line of an element.
+   * @param elements
+   *              The coordinates of each element, as the end of its line.
+   * @param element
+   *              The type and the name of the element, like "I#WALL".
+   * @param coord
+   *              The coordinate.
+   */
+  private static void add(LinkedHashMap<String, StringBuilder> elements, String element, int coord) {
+    elements.computeIfAbsent(element, __ -> new StringBuilder()).append('#').append(coord);
+  }
+}
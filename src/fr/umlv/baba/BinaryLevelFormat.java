@@ -0,0 +1,275 @@
+package fr.umlv.baba;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+
+/**
+ * BinaryLevelFormat saves and loads the levels in a binary format, next to the text format of SaverLoader.
+ * The file starts with a header : the magic number "BABA", the version of the format, the number of elements,
+ * xMax and yMax. Then each element has its type and its ordinal, the encoding of its coordinates, their number,
+ * the number of bytes of the coordinates and the coordinates. The coordinates are either the gaps between
+ * two consecutive coordinates as variable-length integers (7 bits by byte), or a bitset of a long by 64 squares,
+ * whichever is smaller. All the numbers are in little endian order.
+ * The loader maps the file in memory and adds each element to the board in one call.
+ *
+ * @see SaverLoader
+ * @see Board
+ */
+public final class BinaryLevelFormat {
+  private static final int MAGIC = 'B' | 'A' << 8 | 'B' << 16 | 'A' << 24;
+  private static final short VERSION = 1;
+  private static final int HEADER_BYTES = 4 + 2 + 2 + 4 + 4;
+  private static final int ELEMENT_BYTES = 1 + 1 + 1 + 4 + 4;
+  private static final byte GAPS = 0;
+  private static final byte BITSET = 1;
+
+  private BinaryLevelFormat() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Compute the number of bytes of the gaps between the coordinates of a set.
+   * @param coords
+   *              The coordinates.
+   * @return the number of bytes.
+   */
+  private static long gapBytes(CoordSet coords) {
+    var bytes = 0L;
+    var previous = -1;
+    for(var coord = coords.next(0); coord != -1; coord = coords.next(coord + 1)) {
+      var gap = coord - previous - 1;
+      bytes += gap < 1 << 7 ? 1 : gap < 1 << 14 ? 2 : gap < 1 << 21 ? 3 : gap < 1 << 28 ? 4 : 5;
+      previous = coord;
+    }
+    return bytes;
+  }
+
+  /**
+   * Save the elements of a board in a binary level file.
+   *
+   * @param board
+   *              The board.
+   * @param path
+   *              The path of the file.
+   * @throws IOException
+   *              If the file can't be written.
+   */
+  public static void save(Board board, Path path) throws IOException {
+    Objects.requireNonNull(board);
+    Objects.requireNonNull(path);
+    var buffer = encode(board);
+    try(var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while(buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /**
+   * Encode the elements of a board in the binary format.
+   * @param board
+   *              The board.
+   * @return the bytes of the level, from the position to the limit of the buffer.
+   */
+  static ByteBuffer encode(Board board) {
+    var bitsetBytes = ((long) board.getXMax() * board.getYMax() + Long.SIZE - 1) / Long.SIZE * Long.BYTES;
+    var total = (long) HEADER_BYTES;
+    var count = 0;
+    for(var i = 0; i < Elements.COUNT; i++) {
+      var coords = board.positions(Elements.get(i));
+      if(coords != null && !coords.isEmpty()) {
+        total += ELEMENT_BYTES + Math.min(gapBytes(coords), bitsetBytes);
+        count++;
+      }
+    }
+    if(total > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The level is too big for the binary format");
+    }
+    var buffer = ByteBuffer.allocate((int) total).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC).putShort(VERSION).putShort((short) count).putInt(board.getXMax()).putInt(board.getYMax());
+    for(var i = 0; i < Elements.COUNT; i++) {
+      var element = Elements.get(i);
+      var coords = board.positions(element);
+      if(coords == null || coords.isEmpty()) {
+        continue;
+      }
+      var gaps = gapBytes(coords);
+      var encoding = gaps <= bitsetBytes ? GAPS : BITSET;
+      buffer.put((byte) element.getType().ordinal()).put((byte) element.ordinal()).put(encoding);
+      buffer.putInt(coords.size()).putInt((int) Math.min(gaps, bitsetBytes));
+      if(encoding == BITSET) {
+        coords.writeWords(buffer);
+        continue;
+      }
+      var previous = -1;
+      for(var coord = coords.next(0); coord != -1; coord = coords.next(coord + 1)) {
+        var gap = coord - previous - 1;
+        while(gap >= 1 << 7) {
+          buffer.put((byte) (gap | 1 << 7));
+          gap >>>= 7;
+        }
+        buffer.put((byte) gap);
+        previous = coord;
+      }
+    }
+    return buffer.flip();
+  }
+
+  /**
+   * Load a board from a binary level file mapped in memory. The rules of the board are initialized like with SaverLoader.configureLevel.
+   *
+   * @param path
+   *              The path of the file.
+   * @return the board.
+   * @throws IOException
+   *              If the file can't be read.
+   */
+  public static Board load(Path path) throws IOException {
+    Objects.requireNonNull(path);
+    ByteBuffer buffer;
+    try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    return decode(buffer, path.toString());
+  }
+
+  /**
+   * Read a board from the bytes of a binary level, the position of the buffer moves to the end of the level.
+   * @param buffer
+   *              The bytes.
+   * @param name
+   *              The name of the level, for the errors.
+   * @return the board, with its rules initialized.
+   */
+  static Board decode(ByteBuffer buffer, String name) {
+    try {
+      return read(buffer.order(ByteOrder.LITTLE_ENDIAN));
+    } catch(BufferUnderflowException e) {
+      throw new IllegalArgumentException("The binary level " + name + " is truncated");
+    }
+  }
+
+  /**
+   * Read a board from the bytes of a binary level.
+   * @param buffer
+   *              The bytes, in little endian order.
+   * @return the board.
+   */
+  private static Board read(ByteBuffer buffer) {
+    if(buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+      throw new IllegalArgumentException("This is not a binary level");
+    }
+    var version = buffer.getShort();
+    if(version != VERSION) {
+      throw new IllegalArgumentException("Unsupported version " + version + " of the binary level format");
+    }
+    var count = buffer.getShort();
+    var xMax = buffer.getInt();
+    var yMax = buffer.getInt();
+    if(xMax <= 0 || yMax <= 0 || (long) xMax * yMax > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("xMax and yMax in the level file must be positive");
+    }
+    var size = xMax * yMax;
+    var board = new Board(xMax, yMax);
+    for(var i = 0; i < count; i++) {
+      var element = element(buffer.get(), buffer.get());
+      var encoding = buffer.get();
+      var coordCount = buffer.getInt();
+      var length = buffer.getInt();
+      if(length < 0 || length > buffer.remaining()) {
+        throw new IllegalArgumentException("The coordinates of " + element + " are truncated");
+      }
+      var coords = new CoordSet(size);
+      var data = buffer.slice(buffer.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.position(buffer.position() + length);
+      if(encoding == BITSET) {
+        if(length != ((long) size + Long.SIZE - 1) / Long.SIZE * Long.BYTES) {
+          throw new IllegalArgumentException("The bitset of " + element + " does not match the board");
+        }
+        coords.readWords(data);
+      }
+      else if(encoding == GAPS) {
+        readGaps(data, coords);
+      }
+      else {
+        throw new IllegalArgumentException("Unknown encoding " + encoding + " of the coordinates of " + element);
+      }
+      if(coords.size() != coordCount) {
+        throw new IllegalArgumentException("The coordinates of " + element + " are not correct");
+      }
+      board.addAll(element, coords);
+    }
+    board.initRules();
+    return board;
+  }
+
+  /**
+   * Read the coordinates encoded as gaps.
+   * @param data
+   *              The bytes of the gaps.
+   * @param coords
+   *              The set receiving the coordinates.
+   */
+  private static void readGaps(ByteBuffer data, CoordSet coords) {
+    var coord = -1L;
+    while(data.hasRemaining()) {
+      var gap = 0L;
+      for(var shift = 0;; shift += 7) {
+        if(shift > 28) {
+          throw new IllegalArgumentException("A gap between two coordinates is too big");
+        }
+        var b = data.get();
+        gap |= (long) (b & 0x7F) << shift;
+        if(b >= 0) {
+          break;
+        }
+      }
+      coord += gap + 1;
+      if(coord >= coords.capacity()) {
+        throw new IllegalArgumentException("The coordinates are out of the board");
+      }
+      coords.add((int) coord);
+    }
+  }
+
+  /**
+   * Find an element from its type and its ordinal.
+   * @param type
+   *              The ordinal of the Type.
+   * @param ordinal
+   *              The ordinal of the element in its enum.
+   * @return the element.
+   */
+  private static Element element(byte type, byte ordinal) {
+    for(var i = 0; i < Elements.COUNT; i++) {
+      var element = Elements.get(i);
+      if(element.getType().ordinal() == type && element.ordinal() == ordinal) {
+        return element;
+      }
+    }
+    throw new IllegalArgumentException("Unknown element " + type + "/" + ordinal + " in the binary level");
+  }
+
+  /**
+   * Convert a level of the text format to the binary format.
+   *
+   * @param text
+   *              The path of the text level.
+   * @param binary
+   *              The path of the binary level.
+   * @throws IOException
+   *              If a file can't be read or written.
+   *
+   * @see SaverLoader#loadLevel(Path)
+   */
+  public static void convert(Path text, Path binary) throws IOException {
+    save(SaverLoader.loadLevel(text), binary);
+  }
+}
@@ -1,11 +1,13 @@
 package fr.umlv.baba;
 
-import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.ObjIntConsumer;
 
 
 /**
@@ -13,10 +15,38 @@ import java.util.stream.Collectors;
  *
  */
 public class Board {
+  private static final long WORD_MASK = ~Elements.mask(Type.ITEM);
+  private static final int PLAN_RESOLVED = 1;
+  private static final int PLAN_FREE = 2;
+  private static final int PLAN_SHIFTED = 4;
+  private static final int PLAN_BITS = 3;
+  private static final int PLAN_MASK = (1 << PLAN_BITS) - 1;
+  private static final int MOVE_INDEX = 63;
+  private static final int MOVE_MERGED = 64;
+  private static final int MOVE_COORD_SHIFT = 7;
+  private static final String STACKED_ELEMENTS = "They are stacked elements in your level";
+  private static final String NO_WIN = "They are not win property in your level";
+  private static final String LOST_AT_START = "The level is lost from the start";
   private final int xMax;
   private final int yMax;  
-  private final HashMap<Element, Set<Integer>> elements = new HashMap<>();;
-  private final HashMap<Element, Set<Rule>> rules = new HashMap<>();
+  private final CoordSet[] elements = new CoordSet[Elements.COUNT];
+  private RuleTable rules = RuleTable.EMPTY;
+  private final long[] cells;
+  private final CoordSet[] layers = new CoordSet[Property.values().length];
+  private final CoordSet words;
+  private HashMap<Integer, HashMap<Item, Set<Rule>>> sentences = new HashMap<>();
+  private int[] movedWords = new int[16];
+  private int movedWordsCount;
+  private boolean wordsAdded = true;
+  private int skippedRefreshes;
+  private int partialRefreshes;
+  private int fullRefreshes;
+  private int[] plan;
+  private int planGeneration;
+  private long[] plannedMoves = new long[16];
+  private int plannedCount;
+  private final Journal journal = new Journal();
+  private long stateHash;
   
   /**
    * Board is a hollow representation of the game, but it still needs dimensions.
@@ -35,6 +65,50 @@ public class Board {
     Objects.requireNonNull(elements);
     this.xMax = xMax;
     this.yMax = yMax;
+    this.cells = new long[xMax * yMax];
+    for(var i = 0; i < layers.length; i++) {
+      layers[i] = new CoordSet(xMax * yMax);
+    }
+    this.words = new CoordSet(xMax * yMax);
+  }
+  
+  /**
+   * Copy a board : the elements, the rules and the words waiting for a refresh of the rules.
+   * The copy has its own undo journal, empty, with the same memory limit.
+   * 
+   * @param board
+   *          The board to copy.
+   */
+  private Board(Board board) {
+    this.xMax = board.xMax;
+    this.yMax = board.yMax;
+    this.cells = board.cells.clone();
+    for(var i = 0; i < elements.length; i++) {
+      if(board.elements[i] != null) {
+        elements[i] = new CoordSet(board.elements[i]);
+      }
+    }
+    for(var i = 0; i < layers.length; i++) {
+      layers[i] = new CoordSet(board.layers[i]);
+    }
+    this.words = new CoordSet(board.words);
+    this.rules = board.rules;
+    this.sentences = new HashMap<>(board.sentences);
+    this.movedWords = board.movedWords.clone();
+    this.movedWordsCount = board.movedWordsCount;
+    this.wordsAdded = board.wordsAdded;
+    this.stateHash = board.stateHash;
+    journal.setLimit(board.journal.limit());
+  }
+  
+  /**
+   * Create an independent copy of the board, to play it in another thread for example.
+   * The rules of each line are shared, they are never modified once read.
+   * 
+   * @return a new Board in the same state.
+   */
+  public Board copy() {
+    return new Board(this);
   }
   
   /**
@@ -58,23 +132,27 @@ public class Board {
   }
   
   /**
-   * Display the board with zen5.
+   * Apply an action to each element of the board, with its coordinate. The elements are given in the order of their index (see Elements).
+   * It lets a display draw the board without the Board knowing how.
    * 
-   * @param graphics2D
-   *                the graphics animation of zen5.
-   *              
+   * @param action
+   *                the action receiving an element and its coordinate.
+   * 
+   * @see ObjIntConsumer
+   * @see Element
    */
-  public void displayBoard(Graphics2D graphics2D) {
-    Objects.requireNonNull(graphics2D);
-    elements.forEach((element, coordList) -> {
-      for(var coordinates: coordList) {
-        BoardDisplay.displayElement(element, graphics2D, coordinates % xMax, coordinates / xMax);
+  public void forEachElement(ObjIntConsumer<Element> action) {
+    Objects.requireNonNull(action);
+    for(var i = 0; i < elements.length; i++) {
+      if(elements[i] != null) {
+        var element = Elements.get(i);
+        elements[i].forEach(coord -> action.accept(element, coord));
       }
-    });
+    }
   }
   
   /**
-   * add an element in a coord to the HashMap elements.
+   * add an element in a coord to the elements. The turns of the journal are forgotten.
    * 
    * @param element
    *              The element to add.
@@ -89,16 +167,37 @@ public class Board {
     if(coord < 0 || coord >= xMax * yMax) {
       throw new IllegalArgumentException("The coordinates are out of the board");
     }
-    var list = elements.get(element);
+    journal.clear();
+    this.coordList(element).add(coord);
+    this.addOccupant(coord, Elements.indexOf(element));
+    this.refreshLayers(coord);
+    if(element.getType() != Type.ITEM) {
+      wordsAdded = true;
+    }
+  }
+  
+  /**
+   * Get the coordinates of an element, the set is created if the element is not yet in the board.
+   * 
+   * @param element
+   *              The element.
+   * @return the CoordSet of the element stored in elements.
+   * 
+   * @see Element
+   * @see CoordSet
+   */
+  private CoordSet coordList(Element element) {
+    var index = Elements.indexOf(element);
+    var list = elements[index];
     if(list == null) {
-      list = new HashSet<>();  
+      list = new CoordSet(xMax * yMax);
+      elements[index] = list;
     }
-    list.add(Integer.valueOf(coord));
-    elements.put(element, list);
+    return list;
   }
   
   /**
-   * add an element in all the coords to the elements HashMap.
+   * add an element in all the coords to the elements.
    * 
    * @param element
    *              The element to add.
@@ -113,12 +212,164 @@ public class Board {
   public void addAll(Element element, Set<Integer> listCoord) {
     Objects.requireNonNull(element);
     Objects.requireNonNull(listCoord);
-    var list = elements.get(element);
-    if(list == null) {
-      list = new HashSet<>();
+    for(var coord: listCoord) {
+      this.add(element, coord);
+    }
+  }
+  
+  /**
+   * add an element in all the coords of a CoordSet to the elements. The turns of the journal are forgotten.
+   * 
+   * @param element
+   *              The element to add.
+   * @param listCoord
+   *            The coords where are the elements, a set with the capacity of the board.
+   * 
+   * @see Element
+   * @see CoordSet
+   *              
+   */
+  public void addAll(Element element, CoordSet listCoord) {
+    Objects.requireNonNull(element);
+    Objects.requireNonNull(listCoord);
+    if(listCoord.capacity() != xMax * yMax) {
+      throw new IllegalArgumentException("The coordinates don't match the board");
+    }
+    journal.clear();
+    this.addCoords(element, listCoord);
+  }
+  
+  /**
+   * add an element in all the coords of a CoordSet, without forgetting the turns of the journal.
+   * 
+   * @param element
+   *              The element to add.
+   * @param listCoord
+   *            The coords where are the elements, a set with the capacity of the board.
+   */
+  private void addCoords(Element element, CoordSet listCoord) {
+    this.coordList(element).addAll(listCoord);
+    if(element.getType() != Type.ITEM) {
+      wordsAdded = true;
+      words.addAll(listCoord);
+    }
+    var bit = Elements.bit(element);
+    var index = Elements.indexOf(element);
+    listCoord.forEach(coord -> this.addOccupant(coord, index));
+    for(var property: Property.values()) {
+      if((rules.elementsWith(property) & bit) != 0) {
+        layers[property.ordinal()].addAll(listCoord);
+      }
+    }
+  }
+  
+  /**
+   * Get the squares of an element, the set of the board itself.
+   * 
+   * @param element
+   *              The element.
+   * @return the CoordSet of the element, null if the element was never in the board.
+   * 
+   * @see CoordSet
+   */
+  CoordSet positions(Element element) {
+    return elements[Elements.indexOf(element)];
+  }
+  
+  /**
+   * Get the squares that no element can enter or leave with the current rules : the squares of the elements
+   * with the STOP property, except the elements which also have the YOU property, because they move by themselves.
+   * 
+   * @param walls
+   *              The set that receives the walls, its squares are cleared first.
+   * 
+   * @see CoordSet
+   */
+  void walls(CoordSet walls) {
+    walls.clear();
+    for(var mask = rules.elementsWith(Property.STOP) & ~rules.elementsWith(Property.YOU); mask != 0; mask &= mask - 1) {
+      var coordList = elements[Long.numberOfTrailingZeros(mask)];
+      if(coordList != null) {
+        walls.addAll(coordList);
+      }
+    }
+  }
+  
+  /**
+   * Get the elements that are in a square of the board.
+   * 
+   * @param coord
+   *            The coord of the square, it can be out of the board.
+   * @return the mask of the elements in this square, each element is a bit (0 if the square is out of the board).
+   * 
+   * @see Elements
+   */
+  long occupants(int coord) {
+    if(coord < 0 || coord >= cells.length) {
+      return 0L;
+    }
+    return cells[coord];
+  }
+  
+  /**
+   * Give the Zobrist key of an element in a square. The keys are not stored in a table : 
+   * they are computed by mixing the index of the element and the coordinate, so they don't depend on the size of the board.
+   * 
+   * @param index
+   *            The index of the element (see Elements).
+   * @param coord
+   *            The coordinate of the square.
+   * @return a pseudo-random 64 bits key.
+   */
+  static long zobristKey(int index, int coord) {
+    var key = ((long) coord << 6 | index) * 0x9E3779B97F4A7C15L;
+    key = (key ^ key >>> 30) * 0xBF58476D1CE4E5B9L;
+    key = (key ^ key >>> 27) * 0x94D049BB133111EBL;
+    return key ^ key >>> 31;
+  }
+  
+  /**
+   * Put an element in a square and update the state hash, if the element is not already there.
+   * 
+   * @param coord
+   *            The coordinate of the square.
+   * @param index
+   *            The index of the element (see Elements).
+   */
+  private void addOccupant(int coord, int index) {
+    var bit = 1L << index;
+    if((cells[coord] & bit) == 0) {
+      cells[coord] |= bit;
+      stateHash ^= zobristKey(index, coord);
+    }
+  }
+  
+  /**
+   * Remove an element from a square and update the state hash, if the element is there.
+   * 
+   * @param coord
+   *            The coordinate of the square.
+   * @param index
+   *            The index of the element (see Elements).
+   */
+  private void removeOccupant(int coord, int index) {
+    var bit = 1L << index;
+    if((cells[coord] & bit) != 0) {
+      cells[coord] &= ~bit;
+      stateHash ^= zobristKey(index, coord);
     }
-    list.addAll(listCoord);
-    elements.put(element, list);
+  }
+  
+  /**
+   * Get the Zobrist hash of the board : the XOR of the keys of each element in each square.
+   * It is updated at each change of a square, so two boards with the same elements at the same squares have the same hash.
+   * 
+   * @return the hash of the current state.
+   * 
+   * @see #zobristKey(int, int)
+   */
+  public long stateHash() {
+    return stateHash;
   }
   
   /**
@@ -149,6 +400,7 @@ public class Board {
   
   /**
    * Check if an element in some coordinate is still in board after he moved in a direction.
+   * The arguments are not checked, the callers already did it.
    * @param coord
    *              The original coordinates before the move.
    * @param direction
@@ -158,212 +410,230 @@ public class Board {
    *              
    */
   private boolean moveInBoard(int coord, int direction) {
-    if(coord < 0 || coord >= xMax * yMax) {
-      throw new IllegalArgumentException("Coordinates out of the board");
-    }
-    if(Math.abs(direction) != 1 && Math.abs(direction) != xMax) {
-      throw new IllegalArgumentException("Invalid direction");
+    if(direction == 1 || direction == -1) {
+      return coord + direction >= 0 && coord / xMax == (coord + direction) / xMax;
     }
-    if(Math.abs(direction) == 1) {
-      if(coord / xMax != (coord + direction) / xMax || coord + direction < 0) {
-        return false;
-      }
-    }
-    else if((direction == -xMax && coord + direction < 0) || (direction == xMax && coord + direction >= xMax * yMax)) {
-        return false;
-    }
-    return true;
+    return coord + direction >= 0 && coord + direction < cells.length;
   }
   
   /**
-   * Move an element in the board (with PUSH Rule).
+   * Move an element of a square to the next square in a direction, without any check.
    * @param coord
    *              The original coordinates before the move.
    * @param direction
    *              A direction ("LEFT", "RIGHT", "UP", "DOWN").
-   * @param element
-   *              The element to move.
-   * @return true only if the move is done.
+   * @param index
+   *              The index of the element to move (see Elements).
    * 
-   * @see Element             
+   * @see Elements             
    */
-  private boolean moveOneElement(int coord, int direction, Element element) {
-    if(coord < 0 || coord >= xMax * yMax) {
-      throw new IllegalArgumentException("Coordinates out of the board");
-    }
-    if(Math.abs(direction) != 1 && Math.abs(direction) != xMax) {
-      throw new IllegalArgumentException("Invalid direction");
-    }
-    var coordList = elements.get(element);
-    if(!coordList.contains(coord)) {
-      throw new IllegalArgumentException("No specified item in this coordinates");
+  private void moveOneElement(int coord, int direction, int index) {
+    var coordList = elements[index];
+    coordList.remove(coord);
+    coordList.add(coord + direction);
+    var bit = 1L << index;
+    this.removeOccupant(coord, index);
+    this.addOccupant(coord + direction, index);
+    this.refreshLayers(coord);
+    this.refreshLayers(coord + direction);
+    if((bit & WORD_MASK) != 0) {
+      this.wordMoved(coord);
+      this.wordMoved(coord + direction);
     }
-    if(this.moveInBoard(coord, direction)) {
-      coordList.remove(Integer.valueOf(coord));
-      coordList.add(coord + direction);
-      elements.put(element, coordList);
-      return true;
-    }
-    return false;
   }
   
   /**
-   * Check if an element with the STOP property is at the case when an element try to move.
+   * Get the flags of a square in the plan of the current move.
    * @param coord
-   *              The original coordinates before the move.
-   * @param direction
-   *              A direction ("LEFT", "RIGHT", "UP", "DOWN").
-   * @return true only if they are an element with the STOP property in coord + direction.             
+   *              The coordinate of the square.
+   * @return the flags PLAN_RESOLVED, PLAN_FREE and PLAN_SHIFTED of the square, 0 if the square is not in the plan.
    */
-  private boolean moveStop(int coord, int direction) {
-    if(coord < 0 || coord >= xMax * yMax) {
-      throw new IllegalArgumentException("Coordinates out of the board");
-    }
-    if(Math.abs(direction) != 1 && Math.abs(direction) != xMax) {
-      throw new IllegalArgumentException("Invalid direction");
-    }
-    for(var entry: elements.entrySet()) {
-      if(this.isRule(entry.getKey(), Property.STOP)) {
-        if(entry.getValue().contains(coord + direction)) {
-          return true;
-        }
-      }
+  private int planFlags(int coord) {
+    var value = plan[coord];
+    return value >>> PLAN_BITS == planGeneration ? value & PLAN_MASK : 0;
+  }
+  
+  /**
+   * Add flags to a square in the plan of the current move.
+   * @param coord
+   *              The coordinate of the square.
+   * @param flags
+   *              The flags to add.
+   */
+  private void addPlanFlags(int coord, int flags) {
+    plan[coord] = planGeneration << PLAN_BITS | this.planFlags(coord) | flags;
+  }
+  
+  /**
+   * Add the move of an element to the plan of the current move.
+   * @param coord
+   *              The coordinate of the element before the move.
+   * @param index
+   *              The index of the element (see Elements).
+   */
+  private void addPlannedMove(int coord, int index) {
+    if(plannedCount == plannedMoves.length) {
+      plannedMoves = Arrays.copyOf(plannedMoves, plannedCount * 2);
     }
-    return false;
+    plannedMoves[plannedCount++] = (long) coord << MOVE_COORD_SHIFT | index;
   }
   
   /**
-   * Check if an element with the PUSH property is at the case when an element try to move. try to push it recursively, unless he has the YOU property.
+   * Plan the move of the YOU elements of a square, and the elements they push.
+   * The squares in front are read until a square without element with the PUSH property. The move is impossible 
+   * if an element with the STOP property or the edge of the board is met before. 
+   * The squares already read for another YOU element keep their result, so each square is read once per move.
+   * The elements with the YOU property are not pushed, they move by themselves.
    * @param coord
-   *              The original coordinates before the move.
+   *              The coordinate of the square with YOU elements.
    * @param direction
    *              A direction ("LEFT", "RIGHT", "UP", "DOWN").
-   * @return true only if they are an element with the PUSH property but not YOU property in coord + direction.             
    */
-  private boolean movePush(int coord, int direction) {
-    if(coord < 0 || coord >= xMax * yMax) {
-      throw new IllegalArgumentException("Coordinates out of the board");
+  private void planMove(int coord, int direction) {
+    var stop = layers[Property.STOP.ordinal()];
+    var push = layers[Property.PUSH.ordinal()];
+    var end = coord;
+    boolean free;
+    for(;;) {
+      var flags = this.planFlags(end);
+      if((flags & PLAN_RESOLVED) != 0) {
+        free = (flags & PLAN_FREE) != 0;
+        break;
+      }
+      if(!this.moveInBoard(end, direction) || stop.contains(end + direction)) {
+        free = false;
+        break;
+      }
+      if(!push.contains(end + direction)) {
+        free = true;
+        break;
+      }
+      end += direction;
     }
-    if(Math.abs(direction) != 1 && Math.abs(direction) != xMax) {
-      throw new IllegalArgumentException("Invalid direction");
+    var result = free ? PLAN_RESOLVED | PLAN_FREE : PLAN_RESOLVED;
+    for(var square = coord; square != end; square += direction) {
+      this.addPlanFlags(square, result);
     }
-    if(Math.abs(direction) == 1 && coord / xMax != (coord + direction) / xMax) {
-      return true;
+    this.addPlanFlags(end, result);
+    if(!free) {
+      return;
     }
-    for(var entry: elements.entrySet()) {
-      var isYou = false;
-      var element = entry.getKey();
-      if(this.isRule(element, Property.YOU)) {
-        if(entry.getValue().contains(coord + direction)) {
-          isYou = !moveNeighbor(coord + direction, direction);
-        }
-      }
-      if(this.isRule(element, Property.PUSH)) {
-        if(entry.getValue().contains(coord + direction)) {
-          if(!this.moveNeighbor(coord + direction, direction)) {
-            if(!isYou) {
-              return !this.moveOneElement(coord + direction, direction, entry.getKey());
-            }
-            if(this.moveInBoard(coord + direction, direction)) {
-              return false;
-            }
-            return true;
-          }
-          else {
-            return true;
-          }
+    var pushed = rules.elementsWith(Property.PUSH) & ~rules.elementsWith(Property.YOU);
+    for(var square = end; square != coord; square -= direction) {
+      if((this.planFlags(square) & PLAN_SHIFTED) == 0) {
+        this.addPlanFlags(square, PLAN_SHIFTED);
+        for(var occupants = cells[square] & pushed; occupants != 0; occupants &= occupants - 1) {
+          this.addPlannedMove(square, Long.numberOfTrailingZeros(occupants));
         }
       }
     }
-    return false;
+    for(var you = cells[coord] & rules.elementsWith(Property.YOU); you != 0; you &= you - 1) {
+      this.addPlannedMove(coord, Long.numberOfTrailingZeros(you));
+    }
   }
-
+  
   /**
-   * Check if a move is possible by looking at the arrival square.
-   * @param coord
-   *              The original coordinates before the move.
+   * Try to move everything in the board that can do it at a specific direction. 
+   * Currently, only all the elements with the YOU property are allowed to move.
+   * All the YOU elements move at the same time : the moves are planned from the front to the back
+   * (the squares closest to the edge of the direction first), then applied in a single pass.
    * @param direction
-   *              A direction ("LEFT", "RIGHT", "UP", "DOWN").
-   * @return true only if the move cannot be done.             
+   *              A direction ("LEFT", "RIGHT", "UP", "DOWN").            
    */
-  private boolean moveNeighbor(int coord, int direction) {
-    if(coord < 0 || coord >= xMax * yMax) {
-      throw new IllegalArgumentException("Coordinates out of the board");
-    }
+  public void move(int direction) {
     if(Math.abs(direction) != 1 && Math.abs(direction) != xMax) {
       throw new IllegalArgumentException("Invalid direction");
     }
-    if(moveStop(coord, direction)) {
-      return true;
-    }
-    return movePush(coord, direction);
+    this.play(direction);
   }
   
   /**
-   * Check if a move is possible.
-   * @param coord
-   *              The original coordinates before the move.
+   * Try to move everything in the board that can do it in a direction (see move(int)).
    * @param direction
-   *              A direction ("LEFT", "RIGHT", "UP", "DOWN").
-   * @return true only if the move is possible.             
+   *              The direction.
+   * 
+   * @see Direction
    */
-  private boolean validateMove(int coord, int direction) {
-    if(coord < 0 || coord >= xMax * yMax) {
-      throw new IllegalArgumentException("Coordinates out of the board");
+  public void move(Direction direction) {
+    this.play(direction.offset(xMax));
+  }
+  
+  /**
+   * Play the moves of a sequence, each one followed by a refresh of the rules, until the game is won or lost.
+   * The rules are refreshed before the first move. Each move is a turn of the journal, like with move and refreshRules.
+   * 
+   * @param moves
+   *              The directions of the moves.
+   * @return the number of moves played, how the game stands and the state hash after them.
+   * 
+   * @see Direction
+   * @see MoveOutcome
+   */
+  public MoveOutcome applyMoves(Direction... moves) {
+    Objects.requireNonNull(moves);
+    var offsets = new int[Direction.values().length];
+    for(var direction: Direction.values()) {
+      offsets[direction.ordinal()] = direction.offset(xMax);
     }
-    if(Math.abs(direction) != 1 && Math.abs(direction) != xMax) {
-      throw new IllegalArgumentException("Invalid direction");
+    this.refreshRules();
+    var played = 0;
+    var result = this.result();
+    for(; result == MoveOutcome.Result.UNFINISHED && played < moves.length; played++) {
+      this.play(offsets[moves[played].ordinal()]);
+      this.refreshRules();
+      result = this.result();
     }
-    return this.moveInBoard(coord, direction) && !this.moveNeighbor(coord, direction);
+    return new MoveOutcome(played, result, stateHash);
   }
   
   /**
-   * Tries to move an element in a fixed direction. 
-   * @param direction
-   *              A direction ("LEFT", "RIGHT", "UP", "DOWN").
-   * @param element
-   *              The element to move.
-   * @param coordList
-   *      The element coordinates.   
-   * @see Element
-   * @see Set
-   * @see Integer          
+   * Tell how the game stands with the current rules.
+   * @return WIN if the game is won, LOOSE if it is lost, UNFINISHED else.
    */
-  private void moveElement(int direction, Element element, Set<Integer> coordList) {
-    if(Math.abs(direction) != 1 && Math.abs(direction) != xMax) {
-      throw new IllegalArgumentException("Invalid direction");
+  private MoveOutcome.Result result() {
+    if(this.isWin()) {
+      return MoveOutcome.Result.WIN;
     }
-    Objects.requireNonNull(element);
-    Objects.requireNonNull(coordList);
-    var newCoordList = new HashSet<Integer>(coordList.stream()
-        .filter(coord -> validateMove(coord, direction))
-        .map(coord -> coord + direction)
-        .collect(Collectors.toSet())
-    );
-    var stayCoordList = new HashSet<Integer>(coordList.stream()
-        .filter(coord -> !validateMove(coord, direction))
-        .collect(Collectors.toSet())
-    );
-    newCoordList.addAll(stayCoordList);
-    var finalCoordList = new HashSet<Integer>(newCoordList);
-    elements.put(element, finalCoordList);   
+    return this.isLoose() ? MoveOutcome.Result.LOOSE : MoveOutcome.Result.UNFINISHED;
   }
   
   /**
-   * Try to move everything in the board that can do it at a specific direction. 
-   * Currently, only all the elements with the YOU property are allowed to move.
+   * Move the YOU elements in a direction, the direction is not checked.
    * @param direction
-   *              A direction ("LEFT", "RIGHT", "UP", "DOWN").            
+   *              The integer to add to a coordinate (-1, 1, -xMax or xMax).
    */
-  public void move(int direction) {
-    if(Math.abs(direction) != 1 && Math.abs(direction) != xMax) {
-      throw new IllegalArgumentException("Invalid direction");
+  private void play(int direction) {
+    if(plan == null) {
+      plan = new int[cells.length];
+    }
+    if(++planGeneration == 1 << Integer.SIZE - PLAN_BITS) {
+      Arrays.fill(plan, 0);
+      planGeneration = 1;
     }
-    elements.forEach((element, coordList) -> {
-      if(this.isRule(element, Property.YOU)) {
-        this.moveElement(direction, element, coordList);
+    plannedCount = 0;
+    var you = layers[Property.YOU.ordinal()];
+    if(direction > 0) {
+      for(var coord = you.previous(cells.length - 1); coord != -1; coord = you.previous(coord - 1)) {
+        this.planMove(coord, direction);
       }
-    });
+    }
+    else {
+      for(var coord = you.next(0); coord != -1; coord = you.next(coord + 1)) {
+        this.planMove(coord, direction);
+      }
+    }
+    var previousWords = journal.limit() == 0 ? null : Arrays.copyOf(movedWords, movedWordsCount);
+    var previousWordsAdded = wordsAdded;
+    for(var i = 0; i < plannedCount; i++) {
+      var plannedMove = plannedMoves[i];
+      var coord = (int) (plannedMove >>> MOVE_COORD_SHIFT);
+      var index = (int) (plannedMove & MOVE_INDEX);
+      if((cells[coord + direction] & 1L << index) != 0) {
+        plannedMoves[i] = plannedMove | MOVE_MERGED;
+      }
+      this.moveOneElement(coord, direction, index);
+    }
+    journal.begin(direction, previousWords == null ? null : Arrays.copyOf(plannedMoves, plannedCount), previousWords, previousWordsAdded);
   }
   
   /**
@@ -371,22 +641,7 @@ public class Board {
    * @return true if an element with YOU property contains a coordinate that an element with WIN property has..          
    */
   public boolean isWin() {
-    var winCoord = new HashSet<>();
-    for(var entry: elements.entrySet()) {
-      if(this.isRule(entry.getKey(), Property.WIN)) {
-        winCoord.addAll(entry.getValue());
-      }
-    }
-    for(var entry: elements.entrySet()) {
-      if(this.isRule(entry.getKey(), Property.YOU)) {
-        for(var coord: entry.getValue()) {
-          if(winCoord.contains(coord)) {
-            return true;
-          }
-        }
-      }
-    }
-    return false;
+    return layers[Property.YOU.ordinal()].intersects(layers[Property.WIN.ordinal()]);
   }
   
   /**
@@ -394,14 +649,69 @@ public class Board {
    * @return true if no element in the rules has the YOU property.          
    */
   public boolean isLoose() {
-    for(var entry: elements.entrySet()) {
-      if(this.isRule(entry.getKey(), Property.YOU)) {
-        if(!entry.getValue().isEmpty()) {
-          return false;
+    return layers[Property.YOU.ordinal()].isEmpty();
+  }
+  
+  /**
+   * Update the property layers at a square, after its occupants changed.
+   * @param coord
+   *            The coordinate of the square.
+   */
+  private void refreshLayers(int coord) {
+    var occupants = cells[coord];
+    for(var property: Property.values()) {
+      layers[property.ordinal()].set(coord, (occupants & rules.elementsWith(property)) != 0);
+    }
+    words.set(coord, (occupants & WORD_MASK) != 0);
+  }
+  
+  /**
+   * Rebuild the layer of each property (the squares where an element has this property) from the current rules.
+   * 
+   * @see Property
+   * @see CoordSet
+   */
+  private void rebuildLayers() {
+    for(var property: Property.values()) {
+      var layer = layers[property.ordinal()];
+      layer.clear();
+      for(var mask = rules.elementsWith(property); mask != 0; mask &= mask - 1) {
+        var coordList = elements[Long.numberOfTrailingZeros(mask)];
+        if(coordList != null) {
+          layer.addAll(coordList);
         }
       }
     }
-    return true;
+  }
+  
+  /**
+   * Get the rules of the board, compiled at the last refresh.
+   * 
+   * @return the current RuleTable.
+   * 
+   * @see RuleTable
+   */
+  public RuleTable getRules() {
+    return rules;
+  }
+  
+  /**
+   * Get the elements that have a property with the current rules.
+   * 
+   * @param property
+   *              The property.
+   * @return the list of the elements having this property.
+   * 
+   * @see Element
+   * @see Property
+   */
+  public List<Element> elementsWith(Property property) {
+    Objects.requireNonNull(property);
+    var list = new ArrayList<Element>();
+    for(var mask = rules.elementsWith(property); mask != 0; mask &= mask - 1) {
+      list.add(Elements.get(Long.numberOfTrailingZeros(mask)));
+    }
+    return list;
   }
   
   /**
@@ -415,78 +725,113 @@ public class Board {
    * @see Rule
    */
   private boolean isRule(Element element, Rule rule) {
-    if(!rules.containsKey(element)) {
-      return false;
-    }
-    return rules.get(element).contains(rule);
+    return rules.isRule(element, rule);
   }
   
   /**
-   * Add a specific rule to an element.
-   * @param element
-   * @param rule
+   * Check if some words were added or moved since the last refresh of the rules.
    * 
-   * @see Element
-   * @see Rule
+   * @return true if the rules have to be searched again.
    */
-  private void addRule(Element element, Rule rule) {
-    Objects.requireNonNull(element);
-    Objects.requireNonNull(rule);
-    var list = rules.get(element);
-    if(list == null) {
-      list = new HashSet<>();
-    }
-    list.add(rule);
-    rules.put(element, list);
+  boolean rulesPending() {
+    return wordsAdded || movedWordsCount != 0;
   }
   
   /**
-   * Add a list of rules to an element.
-   * @param element
-   * @param listRules
+   * Set the rules of the board without transforming its items, like they were at the last refresh of a saved state.
+   * The lines are read again, the turns of the journal are forgotten.
    * 
-   * @see Element
-   * @see Set
-   * @see Rule
+   * @param restored
+   *              The rules of the saved state.
+   * @param pending
+   *              true if the rules of the saved state were waiting for a refresh, the next refresh reads all the lines.
+   * 
+   * @see #rulesPending()
    */
-  private void addAllRules(Element element, Set<Rule> listRules) {
-    Objects.requireNonNull(element);
-    Objects.requireNonNull(listRules);
-    var list = rules.get(element);
-    if(list == null) {
-      list = new HashSet<>();
-    }
-    list.addAll(listRules);
-    rules.put(element, list);
+  void restoreRules(RuleTable restored, boolean pending) {
+    Objects.requireNonNull(restored);
+    journal.clear();
+    this.searchRules();
+    rules = restored;
+    wordsAdded = pending;
+    movedWordsCount = 0;
+    this.rebuildLayers();
   }
   
   /**
    * Init the list of rules of the board. The non-item elements (words) get the PUSH property.
    */
   public void initRules() {
-    for(var element: elements.keySet()) {
-      if(element.getType() != Type.ITEM) {
-        this.addRule(element, Property.PUSH);
-      }
+    journal.clear();
+    rules = RuleTable.compile(sentences.values());
+    this.rebuildLayers();
+  }
+  
+  /**
+   * Remember that a word left or reached a square, the rules around it have to be searched again.
+   * @param coord
+   *            The coordinate of the square.
+   */
+  private void wordMoved(int coord) {
+    if(movedWordsCount == movedWords.length) {
+      movedWords = Arrays.copyOf(movedWords, movedWordsCount * 2);
     }
+    movedWords[movedWordsCount++] = coord;
   }
   
   /**
-   * Check in the board all the current rules and manage then with the RuleManager class.
+   * Search again the rules of a group of consecutive words with the RuleManager class.
+   * @param key
+   *            The key of the group (see RuleManager.groupKey).
    * 
-   * @return a HashMap containing all the found rules in the board.
+   * @see RuleManager
+   */
+  private void searchGroup(int key) {
+    var found = RuleManager.searchGroup(cells, words, key, xMax);
+    if(found.isEmpty()) {
+      journal.line(key, sentences.remove(key), null);
+    }
+    else {
+      journal.line(key, sentences.put(key, found), found);
+    }
+  }
+  
+  /**
+   * Check in the board all the current rules and manage then with the RuleManager class.
    * 
-   * @see HashMap
-   * @see Item
-   * @see Rule
    * @see RuleManager
    */
-  private HashMap<Item, Set<Rule>> searchRules() {
-    return RuleManager.searchRules(elements, xMax);
+  private void searchRules() {
+    var found = RuleManager.searchLines(cells, words, xMax);
+    if(journal.recording()) {
+      sentences.forEach((key, line) -> journal.line(key, line, found.get(key)));
+      found.forEach((key, line) -> {
+        if(!sentences.containsKey(key)) {
+          journal.line(key, null, line);
+        }
+      });
+    }
+    sentences = found;
+  }
+  
+  /**
+   * Search again only the rules of the groups of consecutive words around the squares a word left or reached.
+   * 
+   * @see RuleManager#groupKeys(CoordSet, int, int, Set)
+   */
+  private void searchMovedRules() {
+    var keys = new HashSet<Integer>();
+    for(var i = 0; i < movedWordsCount; i++) {
+      RuleManager.groupKeys(words, movedWords[i], xMax, keys);
+    }
+    for(var key: keys) {
+      this.searchGroup(key);
+    }
   }
   
   /**
    * Transforms a type of item in another (caused by a rule of type : Name Property Name).
+   * Only the squares of the item are changed, and the journal keeps their coordinates, not a copy of the sets.
    * 
    * @param item
    *            The item to transform.
@@ -498,11 +843,28 @@ public class Board {
   private void transformItem(Item item, Item name) {
     Objects.requireNonNull(item);
     Objects.requireNonNull(name);
-    var listCoord = new HashSet<Integer>(elements.get(item));
-    elements.put(item, new HashSet<Integer>());
-    var newListCoord = elements.get(name);
-    newListCoord.addAll(listCoord);
-    this.addAll(name, new HashSet<Integer>(newListCoord));
+    var index = Elements.indexOf(item);
+    var listCoord = elements[index];
+    if(listCoord == null || listCoord.isEmpty() || item == name) {
+      return;
+    }
+    var target = Elements.indexOf(name);
+    var nameList = this.coordList(name);
+    var moved = listCoord.toArray();
+    var added = new int[moved.length];
+    var count = 0;
+    for(var coord: moved) {
+      listCoord.remove(coord);
+      this.removeOccupant(coord, index);
+      if(nameList.add(coord)) {
+        this.addOccupant(coord, target);
+        added[count++] = coord;
+      }
+      this.refreshLayers(coord);
+    }
+    if(journal.recording()) {
+      journal.transform(index, target, moved, Arrays.copyOf(added, count));
+    }
   }
   
   /**
@@ -535,15 +897,13 @@ public class Board {
    */
   private void transformItems() {
     var nameRules = new HashMap<Item, Item>();
-    rules.forEach((element, ruleList) -> {
-      for(var rule: ruleList) {
-        if(rule.getType() == Type.NAME && element.getType() == Type.ITEM) {
-          var item = (Item) element;
-          var name = (Name) rule;
-          nameRules.put(item, name.getItem());
-        }
+    for(var item: Item.values()) {
+      var names = rules.names(Elements.indexOf(item));
+      if(names != 0) {
+        var name = (Name) Elements.get(Long.numberOfTrailingZeros(names));
+        nameRules.put(item, name.getItem());
       }
-    });
+    }
     var finalNameRules = this.transitiveRules(nameRules);
     finalNameRules.forEach((finalItem, finalName) -> {
       transformItem(finalItem, finalName);
@@ -552,18 +912,230 @@ public class Board {
   
   /**
    * Refresh the rules in the board in two step. searching the current rules in the board and transform items concerned by "Name Property Name" rules.
+   * The refresh is skipped if no word moved since the last one, and only the groups of consecutive words around the moved words are read again.
+   * A refresh is part of the turn of the last move, a refresh outside of a turn forgets the turns of the journal.
+   * Like undo and redo, it only updates the layers of the squares of the elements whose properties changed.
    */
   public void refreshRules() {
-    for(var element: rules.keySet()) {
-      if(element.getType() == Type.ITEM) {
-        rules.put(element, new HashSet<>());
-      }
+    if(!wordsAdded && movedWordsCount == 0) {
+      skippedRefreshes++;
+      return;
     }
-    var newRules = this.searchRules();
-    for(var entry: newRules.entrySet()) {
-      this.addAllRules(entry.getKey(), entry.getValue());
+    if(!journal.recording()) {
+      journal.clear();
     }
+    if(wordsAdded) {
+      this.searchRules();
+      fullRefreshes++;
+    }
+    else {
+      this.searchMovedRules();
+      partialRefreshes++;
+    }
+    wordsAdded = false;
+    movedWordsCount = 0;
+    var previous = rules;
+    var compiled = RuleTable.compile(sentences.values());
+    journal.rules(previous, compiled);
+    rules = compiled;
     this.transformItems();
+    this.refreshLayers(previous, List.of());
+  }
+  
+  /**
+   * Undo the last turn (a move and the refresh of the rules that follows it).
+   * Only the changes of the turn are reverted : the moved elements, the transformed items and the lines of rules read again.
+   * When the rules changed, only the layers of the squares of the elements whose properties changed are updated.
+   * 
+   * @return true if a turn was undone, false if there is no turn to undo.
+   */
+  public boolean undo() {
+    var turn = journal.undo();
+    if(turn == null) {
+      return false;
+    }
+    var transforms = turn.transforms;
+    for(var i = transforms.size() - 1; i >= 0; i--) {
+      var transform = transforms.get(i);
+      for(var coord: transform.added) {
+        elements[transform.name].remove(coord);
+        this.removeOccupant(coord, transform.name);
+      }
+      for(var coord: transform.moved) {
+        elements[transform.item].add(coord);
+        this.addOccupant(coord, transform.item);
+      }
+    }
+    var lines = turn.lines;
+    for(var i = lines.size() - 1; i >= 0; i--) {
+      var line = lines.get(i);
+      if(line.before == null) {
+        sentences.remove(line.key);
+      }
+      else {
+        sentences.put(line.key, line.before);
+      }
+    }
+    if(turn.refreshed()) {
+      rules = turn.rulesBefore;
+    }
+    var moves = turn.moves;
+    for(var i = moves.length - 1; i >= 0; i--) {
+      var coord = (int) (moves[i] >>> MOVE_COORD_SHIFT);
+      var index = (int) (moves[i] & MOVE_INDEX);
+      if((moves[i] & MOVE_MERGED) == 0) {
+        this.moveOneElement(coord + turn.direction, -turn.direction, index);
+      }
+      else {
+        elements[index].add(coord);
+        this.addOccupant(coord, index);
+        this.refreshLayers(coord);
+      }
+    }
+    if(turn.refreshed()) {
+      this.refreshLayers(turn.rulesAfter, transforms);
+    }
+    System.arraycopy(turn.movedWords, 0, movedWords, 0, turn.movedWords.length);
+    movedWordsCount = turn.movedWords.length;
+    wordsAdded = turn.wordsAdded;
+    return true;
+  }
+  
+  /**
+   * Update the property layers after a refresh, an undo or a redo changed the rules. Only the squares of the elements
+   * whose properties are not the same with the other rules and the squares of the transformed items are read again,
+   * the squares of the moved elements are already up to date.
+   * @param other
+   *              The rules before the refresh, the undo or the redo.
+   * @param transforms
+   *              The transformed items of the turn, empty for a refresh which updates their squares while transforming them.
+   */
+  private void refreshLayers(RuleTable other, List<Journal.Transform> transforms) {
+    for(var i = 0; i < elements.length; i++) {
+      if(elements[i] != null && other.properties(i) != rules.properties(i)) {
+        elements[i].forEach(this::refreshLayers);
+      }
+    }
+    for(var transform: transforms) {
+      for(var coord: transform.moved) {
+        this.refreshLayers(coord);
+      }
+    }
+  }
+  
+  /**
+   * Redo the last undone turn. The undone turns are forgotten when a new move is made.
+   * 
+   * @return true if a turn was redone, false if there is no turn to redo.
+   */
+  public boolean redo() {
+    var turn = journal.redo();
+    if(turn == null) {
+      return false;
+    }
+    for(var move: turn.moves) {
+      this.moveOneElement((int) (move >>> MOVE_COORD_SHIFT), turn.direction, (int) (move & MOVE_INDEX));
+    }
+    if(!turn.refreshed()) {
+      return true;
+    }
+    for(var line: turn.lines) {
+      if(line.after == null) {
+        sentences.remove(line.key);
+      }
+      else {
+        sentences.put(line.key, line.after);
+      }
+    }
+    rules = turn.rulesAfter;
+    for(var transform: turn.transforms) {
+      for(var coord: transform.moved) {
+        elements[transform.item].remove(coord);
+        this.removeOccupant(coord, transform.item);
+      }
+      var nameList = this.coordList(Elements.get(transform.name));
+      for(var coord: transform.added) {
+        nameList.add(coord);
+        this.addOccupant(coord, transform.name);
+      }
+    }
+    this.refreshLayers(turn.rulesBefore, turn.transforms);
+    movedWordsCount = 0;
+    wordsAdded = false;
+    return true;
+  }
+  
+  /**
+   * A getter to know how many turns can be undone.
+   * 
+   * @return the number of turns kept in the journal.
+   */
+  public int getUndoCount() {
+    return journal.undoCount();
+  }
+  
+  /**
+   * A getter to know how many undone turns can be redone.
+   * 
+   * @return the number of undone turns kept in the journal.
+   */
+  public int getRedoCount() {
+    return journal.redoCount();
+  }
+  
+  /**
+   * Change the memory limit of the undo journal. When it is exceeded, the oldest turns are forgotten first.
+   * 
+   * @param limit
+   *              The limit in bytes, 0 to disable the undo.
+   */
+  public void setJournalLimit(long limit) {
+    journal.setLimit(limit);
+  }
+  
+  /**
+   * A getter to know the memory limit of the undo journal.
+   * 
+   * @return the limit in bytes, 0 if the undo is disabled.
+   */
+  public long getJournalLimit() {
+    return journal.limit();
+  }
+  
+  /**
+   * A getter to know the memory used by the undo journal.
+   * 
+   * @return an estimation of the memory used by the turns kept, in bytes.
+   */
+  public long getJournalSize() {
+    return journal.bytes();
+  }
+  
+  /**
+   * A getter to know how many calls of refreshRules were skipped because no word moved.
+   * 
+   * @return skippedRefreshes
+   */
+  public int getSkippedRefreshes() {
+    return skippedRefreshes;
+  }
+  
+  /**
+   * A getter to know how many calls of refreshRules searched only the rules around the moved words.
+   * 
+   * @return partialRefreshes
+   */
+  public int getPartialRefreshes() {
+    return partialRefreshes;
+  }
+  
+  /**
+   * A getter to know how many calls of refreshRules searched all the rules of the board.
+   * 
+   * @return fullRefreshes
+   */
+  public int getFullRefreshes() {
+    return fullRefreshes;
   }
   
   /**
@@ -572,14 +1144,7 @@ public class Board {
    */
   private boolean unstackedElements() {
     for(var i = 0; i < xMax * yMax; i++) {
-      var numberElements = 0;
-      for(var coordList: elements.values()) {
-        if(coordList.contains(Integer.valueOf(i))) {
-          numberElements++;
-        }
-      }
-      if(numberElements > 1) {
-        System.out.println("Error : They are stacked elements in your level");
+      if(Long.bitCount(cells[i]) > 1) {
         return false;
       }
     }
@@ -591,11 +1156,24 @@ public class Board {
    * @return true if the elements are containing the WIN property.
    */
   private boolean possibleWin() {
-    var flag =  elements.containsKey(Property.WIN);
-    if(!flag) {
-      System.out.println("Error : They are not win property in your level");
+    return elements[Elements.indexOf(Property.WIN)] != null;
+  }
+  
+  /**
+   * Called with a start board. Check if a board is valid like isValid, without printing anything.
+   * @return null if the board is valid, or the reason why it is not.
+   */
+  public String validityError() {
+    if(!this.unstackedElements()) {
+      return STACKED_ELEMENTS;
+    }
+    if(!this.possibleWin()) {
+      return NO_WIN;
     }
-    return flag;
+    if(this.isLoose()) {
+      return LOST_AT_START;
+    }
+    return null;
   }
   
   /**
@@ -603,6 +1181,10 @@ public class Board {
    * @return true only if the board is valid.
    */
   public boolean isValid() {
-    return this.unstackedElements() && this.possibleWin() && !this.isLoose();
+    var error = this.validityError();
+    if(error != null && error != LOST_AT_START) {
+      System.out.println("Error : " + error);
+    }
+    return error == null;
   }
 }
@@ -0,0 +1,232 @@
+package fr.umlv.baba;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Campaign plays levels one after the other, from text level files or from a level pack.
+ * While a level is played, the next levels are loaded, their rules refreshed and their validity checked on a background thread,
+ * so moving to the next level after a win only takes a board already prepared.
+ * The background thread is a daemon, closing the campaign cancels the levels still waiting to be prepared.
+ * A Campaign is used by one thread, the one of the game.
+ *
+ * @see LevelPack
+ * @see SaverLoader#configureLevel(Path)
+ */
+public final class Campaign implements Closeable {
+  /**
+   * The number of levels prepared in advance by default.
+   */
+  public static final int DEFAULT_AHEAD = 2;
+
+  @FunctionalInterface
+  private interface Loader {
+    Board load(int index) throws IOException;
+  }
+
+  private final int count;
+  private final Loader loader;
+  private final List<Path> levels;
+  private final LevelPack pack;
+  private final int ahead;
+  private final ExecutorService executor;
+  private final HashMap<Integer, Future<Board>> prepared = new HashMap<>();
+  private int index = -1;
+  private boolean closed;
+
+  private Campaign(int count, Loader loader, List<Path> levels, LevelPack pack, int ahead) {
+    if(ahead < 0) {
+      throw new IllegalArgumentException("The number of levels prepared in advance can't be negative");
+    }
+    this.count = count;
+    this.loader = loader;
+    this.levels = levels;
+    this.pack = pack;
+    this.ahead = ahead;
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      var thread = new Thread(runnable, "campaign-preloader");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Create a campaign from text level files, played in the order of the list.
+   *
+   * @param levels
+   *              The paths of the levels.
+   * @param ahead
+   *              The number of levels prepared in advance.
+   * @return the campaign, to close after use.
+   *
+   * @see TextLevelFormat#load(Path)
+   */
+  public static Campaign of(List<Path> levels, int ahead) {
+    var copy = List.copyOf(levels);
+    return new Campaign(copy.size(), index -> TextLevelFormat.load(copy.get(index)), copy, null, ahead);
+  }
+
+  /**
+   * Create a campaign from the levels of a pack, played in the order of the pack. The pack is not closed by the campaign.
+   *
+   * @param pack
+   *              The level pack.
+   * @param ahead
+   *              The number of levels prepared in advance.
+   * @return the campaign, to close after use.
+   *
+   * @see LevelPack#load(int)
+   */
+  public static Campaign of(LevelPack pack, int ahead) {
+    Objects.requireNonNull(pack);
+    return new Campaign(pack.size(), pack::load, null, pack, ahead);
+  }
+
+  /**
+   * A getter to know the number of levels of the campaign.
+   *
+   * @return the number of levels.
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * A getter to know the index of the level being played.
+   *
+   * @return the index, -1 before the first level and size() after the last one.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * A getter to know the name of the level being played.
+   *
+   * @return its file name without ".txt", or its name in the pack.
+   */
+  public String getName() {
+    Objects.checkIndex(index, count);
+    if(pack != null) {
+      return pack.getName(index);
+    }
+    var name = levels.get(index).getFileName().toString();
+    return name.endsWith(".txt") ? name.substring(0, name.length() - 4) : name;
+  }
+
+  /**
+   * A getter to know the path of the level being played.
+   *
+   * @return the path of the text level, or null if the level comes from a pack.
+   */
+  public Path getPath() {
+    Objects.checkIndex(index, count);
+    return levels == null ? null : levels.get(index);
+  }
+
+  /**
+   * Check if the campaign has a level after the one being played.
+   *
+   * @return true if next gives a board.
+   */
+  public boolean hasNext() {
+    return index + 1 < count;
+  }
+
+  /**
+   * Move to the next level. The board was prepared in the background if it was asked early enough,
+   * otherwise this call waits for it. The preparation of the following levels starts.
+   *
+   * @return the board of the next level, its rules refreshed, or null if the campaign is finished.
+   * @throws IOException
+   *              If the level can't be read.
+   * @throws IllegalStateException
+   *              If the level is not valid (see Board.isValid) or the campaign is closed.
+   */
+  public Board next() throws IOException {
+    if(closed) {
+      throw new IllegalStateException("The campaign is closed");
+    }
+    if(index < count) {
+      index++;
+    }
+    if(index == count) {
+      return null;
+    }
+    var future = prepared.remove(index);
+    for(var i = index + 1; i <= index + ahead && i < count; i++) {
+      var level = i;
+      prepared.computeIfAbsent(level, key -> executor.submit(() -> this.prepare(level)));
+    }
+    if(future == null) {
+      return this.prepare(index);
+    }
+    try {
+      return future.get();
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the level " + index, e);
+    } catch(ExecutionException e) {
+      var cause = e.getCause();
+      if(cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if(cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * Play again the level being played, from its start. The board is prepared on the calling thread.
+   *
+   * @return a new board of the level, its rules refreshed.
+   * @throws IOException
+   *              If the level can't be read.
+   */
+  public Board restart() throws IOException {
+    Objects.checkIndex(index, count);
+    return this.prepare(index);
+  }
+
+  /**
+   * Load a level, refresh its rules and check that it is valid.
+   * @param level
+   *              The index of the level.
+   * @return the board.
+   * @throws IOException
+   *              If the level can't be read.
+   */
+  private Board prepare(int level) throws IOException {
+    var board = loader.load(level);
+    board.refreshRules();
+    if(!board.isValid()) {
+      throw new IllegalStateException("The level " + level + " of the campaign is not valid");
+    }
+    return board;
+  }
+
+  /**
+   * Leave the campaign : the levels waiting to be prepared are cancelled and the background thread stops.
+   * A level already being prepared is not interrupted, an interrupted read would close the file of a pack.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for(var future: prepared.values()) {
+      future.cancel(false);
+    }
+    prepared.clear();
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,388 @@
+package fr.umlv.baba;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.function.IntConsumer;
+
+
+/**
+ * CoordSet is a set of coordinates of a board, stored as a bitset of longs (a bit by square).
+ * Unlike a Set of Integer, it never boxes a coordinate and its size only depends on the number of squares.
+ *
+ */
+public final class CoordSet {
+  private final int capacity;
+  private final long[] words;
+  private int size;
+
+  /**
+   * Create an empty set able to contain the coordinates between 0 and capacity (excluded).
+   *
+   * @param capacity
+   *              The number of squares of the board.
+   */
+  public CoordSet(int capacity) {
+    if(capacity < 0) {
+      throw new IllegalArgumentException("The capacity can't be negative");
+    }
+    this.capacity = capacity;
+    this.words = new long[(int) (((long) capacity + Long.SIZE - 1) / Long.SIZE)];
+  }
+
+  /**
+   * Create a copy of a set.
+   *
+   * @param set
+   *              The set to copy.
+   */
+  public CoordSet(CoordSet set) {
+    Objects.requireNonNull(set);
+    this.capacity = set.capacity;
+    this.words = set.words.clone();
+    this.size = set.size;
+  }
+
+  /**
+   * Check that a coordinate can be stored in the set.
+   * @param coord
+   *              The coordinate.
+   */
+  private void checkCoord(int coord) {
+    if(coord < 0 || coord >= capacity) {
+      throw new IllegalArgumentException("The coordinates are out of the board");
+    }
+  }
+
+  /**
+   * A getter to know the number of squares the set can contain.
+   *
+   * @return capacity
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Add a coordinate to the set.
+   *
+   * @param coord
+   *              The coordinate to add.
+   * @return true if the coordinate was not in the set.
+   */
+  public boolean add(int coord) {
+    checkCoord(coord);
+    var index = coord >>> 6;
+    var old = words[index];
+    words[index] = old | (1L << coord);
+    if(old == words[index]) {
+      return false;
+    }
+    size++;
+    return true;
+  }
+
+  /**
+   * Add the coordinates between two coordinates, a long at a time.
+   *
+   * @param from
+   *              The first coordinate (included).
+   * @param to
+   *              The last coordinate (excluded).
+   */
+  public void addRange(int from, int to) {
+    if(from < 0 || to > capacity || from > to) {
+      throw new IllegalArgumentException("The range " + from + "-" + to + " is out of the board");
+    }
+    if(from == to) {
+      return;
+    }
+    var first = from >>> 6;
+    var last = (to - 1) >>> 6;
+    var count = 0;
+    for(var index = first; index <= last; index++) {
+      var mask = -1L;
+      if(index == first) {
+        mask &= -1L << from;
+      }
+      if(index == last) {
+        mask &= -1L >>> (Long.SIZE - 1 - ((to - 1) & 63));
+      }
+      count += Long.bitCount(mask & ~words[index]);
+      words[index] |= mask;
+    }
+    size += count;
+  }
+
+  /**
+   * Remove a coordinate from the set.
+   *
+   * @param coord
+   *              The coordinate to remove.
+   * @return true if the coordinate was in the set.
+   */
+  public boolean remove(int coord) {
+    checkCoord(coord);
+    var index = coord >>> 6;
+    var old = words[index];
+    words[index] = old & ~(1L << coord);
+    if(old == words[index]) {
+      return false;
+    }
+    size--;
+    return true;
+  }
+
+  /**
+   * Check if a coordinate is in the set.
+   *
+   * @param coord
+   *              The coordinate, it can be out of the board.
+   * @return true if the coordinate is in the set, false if not or if it is out of the board.
+   */
+  public boolean contains(int coord) {
+    if(coord < 0 || coord >= capacity) {
+      return false;
+    }
+    return (words[coord >>> 6] & (1L << coord)) != 0;
+  }
+
+  /**
+   * Add all the coordinates of a set.
+   *
+   * @param set
+   *              The coordinates to add, a set of the same capacity.
+   */
+  public void addAll(CoordSet set) {
+    Objects.requireNonNull(set);
+    if(set.capacity != capacity) {
+      throw new IllegalArgumentException("The sets don't have the same capacity");
+    }
+    var count = 0;
+    for(var i = 0; i < words.length; i++) {
+      words[i] |= set.words[i];
+      count += Long.bitCount(words[i]);
+    }
+    size = count;
+  }
+
+  /**
+   * Remove all the coordinates of a set.
+   *
+   * @param set
+   *              The coordinates to remove, a set of the same capacity.
+   */
+  public void removeAll(CoordSet set) {
+    Objects.requireNonNull(set);
+    if(set.capacity != capacity) {
+      throw new IllegalArgumentException("The sets don't have the same capacity");
+    }
+    var count = 0;
+    for(var i = 0; i < words.length; i++) {
+      words[i] &= ~set.words[i];
+      count += Long.bitCount(words[i]);
+    }
+    size = count;
+  }
+
+  /**
+   * Check if two sets have at least a coordinate in common, word by word.
+   *
+   * @param set
+   *              The other set, a set of the same capacity.
+   * @return true if a coordinate is in both sets.
+   */
+  public boolean intersects(CoordSet set) {
+    Objects.requireNonNull(set);
+    if(set.capacity != capacity) {
+      throw new IllegalArgumentException("The sets don't have the same capacity");
+    }
+    for(var i = 0; i < words.length; i++) {
+      if((words[i] & set.words[i]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Set or clear a coordinate.
+   *
+   * @param coord
+   *              The coordinate.
+   * @param value
+   *              true to add the coordinate, false to remove it.
+   */
+  public void set(int coord, boolean value) {
+    if(value) {
+      add(coord);
+    }
+    else {
+      remove(coord);
+    }
+  }
+
+  /**
+   * Remove all the coordinates of the set.
+   */
+  public void clear() {
+    Arrays.fill(words, 0L);
+    size = 0;
+  }
+
+  /**
+   * A getter to know the number of coordinates in the set.
+   *
+   * @return size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Check if the set is empty.
+   *
+   * @return true if the set does not contain any coordinate.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Search the first coordinate of the set from a coordinate.
+   *
+   * @param from
+   *              The coordinate where the search starts (included).
+   * @return the first coordinate greater or equal to from, or -1 if there is none.
+   */
+  public int next(int from) {
+    if(from < 0) {
+      from = 0;
+    }
+    if(from >= capacity) {
+      return -1;
+    }
+    var index = from >>> 6;
+    var word = words[index] & (-1L << from);
+    for(;;) {
+      if(word != 0) {
+        return (index << 6) + Long.numberOfTrailingZeros(word);
+      }
+      if(++index == words.length) {
+        return -1;
+      }
+      word = words[index];
+    }
+  }
+
+  /**
+   * Search the last coordinate of the set before a coordinate.
+   *
+   * @param from
+   *              The coordinate where the search starts (included).
+   * @return the first coordinate lower or equal to from, or -1 if there is none.
+   */
+  public int previous(int from) {
+    if(from >= capacity) {
+      from = capacity - 1;
+    }
+    if(from < 0) {
+      return -1;
+    }
+    var index = from >>> 6;
+    var word = words[index] & (-1L >>> (Long.SIZE - 1 - (from & 63)));
+    for(;;) {
+      if(word != 0) {
+        return (index << 6) + Long.SIZE - 1 - Long.numberOfLeadingZeros(word);
+      }
+      if(index-- == 0) {
+        return -1;
+      }
+      word = words[index];
+    }
+  }
+
+  /**
+   * Apply an action to each coordinate of the set, in increasing order.
+   *
+   * @param action
+   *              The action to apply.
+   *
+   * @see IntConsumer
+   */
+  public void forEach(IntConsumer action) {
+    Objects.requireNonNull(action);
+    for(var i = 0; i < words.length; i++) {
+      for(var word = words[i]; word != 0; word &= word - 1) {
+        action.accept((i << 6) + Long.numberOfTrailingZeros(word));
+      }
+    }
+  }
+
+  /**
+   * Write the words of the bitset, a long by 64 squares.
+   *
+   * @param buffer
+   *              The buffer receiving the words, it must have room for (capacity + 63) / 64 longs.
+   */
+  void writeWords(ByteBuffer buffer) {
+    for(var word: words) {
+      buffer.putLong(word);
+    }
+  }
+
+  /**
+   * Add the coordinates of words written by writeWords.
+   *
+   * @param buffer
+   *              The buffer containing the words.
+   */
+  void readWords(ByteBuffer buffer) {
+    var count = 0;
+    for(var i = 0; i < words.length; i++) {
+      words[i] |= buffer.getLong();
+      count += Long.bitCount(words[i]);
+    }
+    if(capacity % Long.SIZE != 0 && words.length != 0 && words[words.length - 1] >>> (capacity % Long.SIZE) != 0) {
+      throw new IllegalArgumentException("The coordinates are out of the board");
+    }
+    size = count;
+  }
+
+  /**
+   * Give the coordinates of the set in increasing order.
+   *
+   * @return an array containing the coordinates.
+   */
+  public int[] toArray() {
+    var array = new int[size];
+    var index = 0;
+    for(var coord = next(0); coord != -1; coord = next(coord + 1)) {
+      array[index++] = coord;
+    }
+    return array;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof CoordSet && capacity == ((CoordSet) obj).capacity && Arrays.equals(words, ((CoordSet) obj).words);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(words);
+  }
+
+  /**
+   * Display the coordinates like a Set of Integer.
+   *
+   * @return a String containing the coordinates in increasing order.
+   */
+  @Override
+  public String toString() {
+    var joiner = new StringJoiner(", ", "[", "]");
+    forEach(coord -> joiner.add(Integer.toString(coord)));
+    return joiner.toString();
+  }
+}
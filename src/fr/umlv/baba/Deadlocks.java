@@ -0,0 +1,336 @@
+package fr.umlv.baba;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+
+/**
+ * Deadlocks finds the states of a Board that can't be won anymore because a word the rules need is stuck.
+ * It keeps tables of the dead squares : the squares from which a pushed word can never reach a square where it has
+ * its place in a sentence. A sentence is read from left to right or from top to bottom, so a name needs two free squares
+ * after it, an operator one free square on each side and a property two free squares before it.
+ * The walls are the edges of the board and the squares of the elements with the STOP property (see Board.walls),
+ * so the tables are computed again when the rules change the walls.
+ * The analysis supposes that the walls stay as they are, it is a hint for a search, not a proof.
+ *
+ * @see Board
+ */
+public final class Deadlocks {
+  private static final Element[] REQUIRED = { Operator.IS, Property.YOU, Property.WIN };
+  private final Board board;
+  private final int xMax;
+  private final int size;
+  private final CoordSet[] useful = new CoordSet[3];
+  private final CoordSet[] live = new CoordSet[3];
+  private final CoordSet frozen;
+  private final int[] queue;
+  private final int[] axes;
+  private final int[] directions;
+  private int[] tiles = new int[16];
+  private RuleTable rules;
+  private CoordSet walls;
+  private CoordSet nextWalls;
+  private int computations;
+
+  /**
+   * Deadlocks analyses a board, it follows the changes of the board.
+   * @param board
+   *              The board.
+   */
+  public Deadlocks(Board board) {
+    this.board = Objects.requireNonNull(board);
+    this.xMax = board.getXMax();
+    this.size = board.getXMax() * board.getYMax();
+    for(var place = 0; place < useful.length; place++) {
+      useful[place] = new CoordSet(size);
+      live[place] = new CoordSet(size);
+    }
+    this.frozen = new CoordSet(size);
+    this.queue = new int[size];
+    this.axes = new int[] { 1, xMax };
+    this.directions = new int[] { 1, -1, xMax, -xMax };
+    this.walls = new CoordSet(size);
+    this.nextWalls = new CoordSet(size);
+  }
+
+  /**
+   * Compute again the dead squares if the rules of the board changed its walls.
+   */
+  private void update() {
+    var current = board.getRules();
+    if(current == rules) {
+      return;
+    }
+    rules = current;
+    board.walls(nextWalls);
+    if(computations != 0 && nextWalls.equals(walls)) {
+      return;
+    }
+    var previous = walls;
+    walls = nextWalls;
+    nextWalls = previous;
+    for(var place = 0; place < useful.length; place++) {
+      this.computeUseful(place);
+      this.computeLive(place);
+    }
+    computations++;
+  }
+
+  /**
+   * Give the place of a word in a sentence.
+   * @param word
+   *              The word.
+   * @return 0 for a name, 1 for an operator and 2 for a property.
+   */
+  private static int placeOf(Element word) {
+    if(Objects.requireNonNull(word).getType() == Type.ITEM) {
+      throw new IllegalArgumentException("Only the words have a place in a sentence");
+    }
+    return word.getType().ordinal() - 1;
+  }
+
+  /**
+   * Give the next square in a direction.
+   * @param coord
+   *              The coordinate of the square.
+   * @param direction
+   *              The direction (-1, 1, -xMax or xMax).
+   * @return the coordinate of the next square, -1 if it is out of the board.
+   */
+  private int neighbor(int coord, int direction) {
+    var next = coord + direction;
+    if(next < 0 || next >= size || ((direction == 1 || direction == -1) && next / xMax != coord / xMax)) {
+      return -1;
+    }
+    return next;
+  }
+
+  /**
+   * Check if the square after some steps in a direction is in the board and is not a wall.
+   * @param coord
+   *              The coordinate of the square.
+   * @param direction
+   *              The direction (-1, 1, -xMax or xMax).
+   * @param steps
+   *              The number of steps.
+   * @return true if the square is free.
+   */
+  private boolean free(int coord, int direction, int steps) {
+    for(var step = 0; step < steps && coord != -1; step++) {
+      coord = this.neighbor(coord, direction);
+    }
+    return coord != -1 && !walls.contains(coord);
+  }
+
+  /**
+   * Mark the useful squares of a place : the squares without wall where a word of this place fits in a sentence,
+   * in a range or a column.
+   * @param place
+   *              The place in the sentence (see placeOf).
+   */
+  private void computeUseful(int place) {
+    var squares = useful[place];
+    squares.clear();
+    for(var coord = 0; coord < size; coord++) {
+      if(walls.contains(coord)) {
+        continue;
+      }
+      for(var direction: axes) {
+        var fits = switch(place) {
+          case 0 -> this.free(coord, direction, 1) && this.free(coord, direction, 2);
+          case 1 -> this.free(coord, -direction, 1) && this.free(coord, direction, 1);
+          default -> this.free(coord, -direction, 1) && this.free(coord, -direction, 2);
+        };
+        if(fits) {
+          squares.add(coord);
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Mark the live squares of a place by pulling the words back from its useful squares : a word can come to a square
+   * from the previous square if the square before it is free for the element that pushes.
+   * @param place
+   *              The place in the sentence (see placeOf).
+   */
+  private void computeLive(int place) {
+    var squares = live[place];
+    squares.clear();
+    squares.addAll(useful[place]);
+    var head = 0;
+    var tail = 0;
+    for(var coord = squares.next(0); coord != -1; coord = squares.next(coord + 1)) {
+      queue[tail++] = coord;
+    }
+    while(head < tail) {
+      var coord = queue[head++];
+      for(var direction: directions) {
+        var from = this.neighbor(coord, -direction);
+        if(from == -1 || walls.contains(from) || squares.contains(from)) {
+          continue;
+        }
+        var pusher = this.neighbor(from, -direction);
+        if(pusher == -1 || walls.contains(pusher)) {
+          continue;
+        }
+        squares.add(from);
+        queue[tail++] = from;
+      }
+    }
+  }
+
+  /**
+   * Check if a pushed word can never reach a square where it has its place in a sentence, with the current walls.
+   *
+   * @param word
+   *              The word, a name, an operator or a property.
+   * @param coord
+   *              The coordinate of the square.
+   * @return true if the square is dead for the word.
+   */
+  public boolean isDead(Element word, int coord) {
+    var place = placeOf(word);
+    this.checkCoord(coord);
+    this.update();
+    return !live[place].contains(coord);
+  }
+
+  /**
+   * Check if a word has its place in a sentence on a square, with the current walls.
+   *
+   * @param word
+   *              The word, a name, an operator or a property.
+   * @param coord
+   *              The coordinate of the square.
+   * @return true if the square is useful for the word.
+   */
+  public boolean isUseful(Element word, int coord) {
+    var place = placeOf(word);
+    this.checkCoord(coord);
+    this.update();
+    return useful[place].contains(coord);
+  }
+
+  /**
+   * Check if the pushable tile of a square can never move again : along each axis, it touches a wall,
+   * the edge of the board or another pushable tile that can never move either.
+   * Unlike the boxes of a Sokoban, the tiles are pushed in chains, so two tiles that only block each other are not frozen.
+   *
+   * @param coord
+   *              The coordinate of the square.
+   * @return true if a tile of the square is pushable and frozen.
+   */
+  public boolean isFrozen(int coord) {
+    this.checkCoord(coord);
+    this.update();
+    this.computeFrozen();
+    return frozen.contains(coord);
+  }
+
+  /**
+   * Check if the state can't be won anymore : all the tiles of a word needed by the rules of a win (IS, YOU or WIN)
+   * are on dead squares, or frozen out of their useful squares. A word on a wall is not known, it is usable.
+   *
+   * @return true if the state is a deadlock.
+   */
+  public boolean isDeadlocked() {
+    this.update();
+    var computed = false;
+    for(var word: REQUIRED) {
+      var place = placeOf(word);
+      var positions = board.positions(word);
+      var usable = false;
+      for(var coord = positions == null ? -1 : positions.next(0); coord != -1 && !usable; coord = positions.next(coord + 1)) {
+        if(!live[place].contains(coord)) {
+          usable = walls.contains(coord);
+          continue;
+        }
+        if(useful[place].contains(coord)) {
+          usable = true;
+          continue;
+        }
+        if(!computed) {
+          this.computeFrozen();
+          computed = true;
+        }
+        usable = !frozen.contains(coord);
+      }
+      if(!usable) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A getter to know how many times the dead squares were computed.
+   *
+   * @return computations
+   */
+  public int getComputations() {
+    return computations;
+  }
+
+  /**
+   * Mark the frozen tiles, from the walls : a tile is frozen if along each axis a neighbor is a wall, an edge or a frozen tile.
+   * The tiles are checked again until no tile becomes frozen.
+   */
+  private void computeFrozen() {
+    frozen.clear();
+    var count = 0;
+    for(var mask = rules.elementsWith(Property.PUSH) & ~rules.elementsWith(Property.YOU); mask != 0; mask &= mask - 1) {
+      var positions = board.positions(Elements.get(Long.numberOfTrailingZeros(mask)));
+      for(var coord = positions == null ? -1 : positions.next(0); coord != -1; coord = positions.next(coord + 1)) {
+        if(count == tiles.length) {
+          tiles = Arrays.copyOf(tiles, count * 2);
+        }
+        tiles[count++] = coord;
+      }
+    }
+    for(var changed = true; changed;) {
+      changed = false;
+      for(var i = 0; i < count; i++) {
+        var coord = tiles[i];
+        if(!frozen.contains(coord) && this.blocked(coord, 1) && this.blocked(coord, xMax)) {
+          frozen.add(coord);
+          changed = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Check if the tile of a square can't move along an axis.
+   * @param coord
+   *              The coordinate of the square.
+   * @param step
+   *              The axis, 1 for a range and xMax for a column.
+   * @return true if a neighbor on the axis is a wall, an edge or a frozen tile.
+   */
+  private boolean blocked(int coord, int step) {
+    return this.blocks(this.neighbor(coord, -step)) || this.blocks(this.neighbor(coord, step));
+  }
+
+  /**
+   * Check if a neighbor square stops a tile.
+   * @param next
+   *              The coordinate of the neighbor, -1 if it is out of the board.
+   * @return true if the neighbor is out of the board, a wall or a frozen tile.
+   */
+  private boolean blocks(int next) {
+    return next == -1 || walls.contains(next) || frozen.contains(next);
+  }
+
+  /**
+   * Check that a coordinate is in the board.
+   * @param coord
+   *              The coordinate.
+   */
+  private void checkCoord(int coord) {
+    if(coord < 0 || coord >= size) {
+      throw new IllegalArgumentException("The coordinates are out of the board");
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package fr.umlv.baba;
+
+
+/**
+ * Direction enumerate the four directions a move can take, in the order tried by the solvers.
+ * @see Board
+ */
+public enum Direction {
+  LEFT(-1, 0),
+  RIGHT(1, 0),
+  UP(0, -1),
+  DOWN(0, 1);
+  
+  private final int dx;
+  private final int dy;
+  
+  Direction(int dx, int dy) {
+    this.dx = dx;
+    this.dy = dy;
+  }
+  
+  /**
+   * Give the integer to add to a coordinate to go to the next square in this direction.
+   * 
+   * @param xMax
+   *              The number of squares in a range of the board.
+   * @return -1, 1, -xMax or xMax.
+   */
+  public int offset(int xMax) {
+    return dx + dy * xMax;
+  }
+}
@@ -0,0 +1,129 @@
+package fr.umlv.baba;
+
+import java.util.Objects;
+
+
+/**
+ * Elements gives to every Element of the game a dense index, shared by all its enums.
+ * The items come first, then the names, the operators and the properties (the order of Type).
+ * This index let the Board describe the occupants of a square with a single long.
+ *
+ * @see Element
+ * @see Type
+ */
+public final class Elements {
+  private static final Element[] VALUES = values();
+  private static final int[] OFFSETS = offsets();
+
+  /**
+   * The number of elements that exist in the game.
+   */
+  public static final int COUNT = VALUES.length;
+
+  static {
+    if(COUNT > Long.SIZE) {
+      throw new IllegalStateException("Too many elements to describe a square with a long");
+    }
+  }
+
+  private Elements() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Regroup the elements of all the enums in the order of Type.
+   * @return an array containing all the elements.
+   */
+  private static Element[] values() {
+    var items = Item.values();
+    var names = Name.values();
+    var operators = Operator.values();
+    var properties = Property.values();
+    var values = new Element[items.length + names.length + operators.length + properties.length];
+    var index = 0;
+    for(var element: items) {
+      values[index++] = element;
+    }
+    for(var element: names) {
+      values[index++] = element;
+    }
+    for(var element: operators) {
+      values[index++] = element;
+    }
+    for(var element: properties) {
+      values[index++] = element;
+    }
+    return values;
+  }
+
+  /**
+   * Compute the first index of each Type.
+   * @return an array of offsets indexed by the ordinal of Type.
+   */
+  private static int[] offsets() {
+    var offsets = new int[Type.values().length];
+    for(var i = VALUES.length - 1; i >= 0; i--) {
+      offsets[VALUES[i].getType().ordinal()] = i;
+    }
+    return offsets;
+  }
+
+  /**
+   * Get the index of an element.
+   * @param element
+   *              The element.
+   * @return an index between 0 and COUNT (excluded).
+   *
+   * @see Element
+   */
+  public static int indexOf(Element element) {
+    Objects.requireNonNull(element);
+    return OFFSETS[element.getType().ordinal()] + element.ordinal();
+  }
+
+  /**
+   * Get the element of an index.
+   * @param index
+   *              An index between 0 and COUNT (excluded).
+   * @return the element with this index.
+   *
+   * @see Element
+   */
+  public static Element get(int index) {
+    if(index < 0 || index >= COUNT) {
+      throw new IllegalArgumentException("Unknown element index " + index);
+    }
+    return VALUES[index];
+  }
+
+  /**
+   * Get the bit of an element in the occupation mask of a square.
+   * @param element
+   *              The element.
+   * @return a long with only the bit of the element.
+   *
+   * @see Element
+   */
+  public static long bit(Element element) {
+    return 1L << indexOf(element);
+  }
+
+  /**
+   * Get the mask of all the elements of a type.
+   * @param type
+   *              The type of the elements.
+   * @return a long with the bits of all the elements of this type.
+   *
+   * @see Type
+   */
+  public static long mask(Type type) {
+    Objects.requireNonNull(type);
+    var mask = 0L;
+    for(var i = 0; i < COUNT; i++) {
+      if(VALUES[i].getType() == type) {
+        mask |= 1L << i;
+      }
+    }
+    return mask;
+  }
+}
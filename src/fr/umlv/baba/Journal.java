@@ -0,0 +1,294 @@
+package fr.umlv.baba;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * Journal keeps the changes made by the last turns of a Board, so they can be undone and redone.
+ * A turn only stores what changed : the moved elements, the transformed items and the lines of rules read again.
+ * The memory used by the turns is limited, the oldest turns are forgotten first.
+ *
+ * @see Board
+ */
+final class Journal {
+  /**
+   * The memory limit of a new journal, in bytes.
+   */
+  static final long DEFAULT_LIMIT = 8L << 20;
+  private static final int TURN_BYTES = 96;
+  private static final int LINE_BYTES = 128;
+  private static final int TRANSFORM_BYTES = 64;
+
+  /**
+   * Line is a group of consecutive words of a range or a column whose rules were read again during a turn.
+   */
+  static final class Line {
+    final int key;
+    final HashMap<Item, Set<Rule>> before;
+    final HashMap<Item, Set<Rule>> after;
+
+    private Line(int key, HashMap<Item, Set<Rule>> before, HashMap<Item, Set<Rule>> after) {
+      this.key = key;
+      this.before = before;
+      this.after = after;
+    }
+  }
+
+  /**
+   * Transform is an item transformed in another one during a turn (rule of type Name Operator Name).
+   */
+  static final class Transform {
+    final int item;
+    final int name;
+    final int[] moved;
+    final int[] added;
+
+    private Transform(int item, int name, int[] moved, int[] added) {
+      this.item = item;
+      this.name = name;
+      this.moved = moved;
+      this.added = added;
+    }
+  }
+
+  /**
+   * Turn is the list of the changes of a move and of the refresh of the rules that follows it.
+   */
+  static final class Turn {
+    final int direction;
+    final long[] moves;
+    final int[] movedWords;
+    final boolean wordsAdded;
+    final ArrayList<Line> lines = new ArrayList<>();
+    final ArrayList<Transform> transforms = new ArrayList<>();
+    RuleTable rulesBefore;
+    RuleTable rulesAfter;
+    private long bytes;
+
+    private Turn(int direction, long[] moves, int[] movedWords, boolean wordsAdded) {
+      this.direction = direction;
+      this.moves = moves;
+      this.movedWords = movedWords;
+      this.wordsAdded = wordsAdded;
+      this.bytes = TURN_BYTES + (long) moves.length * Long.BYTES + (long) movedWords.length * Integer.BYTES;
+    }
+
+    /**
+     * Check if the rules were refreshed during the turn.
+     * @return true if the turn contains a refresh of the rules.
+     */
+    boolean refreshed() {
+      return rulesAfter != null;
+    }
+  }
+
+  private final ArrayDeque<Turn> undoTurns = new ArrayDeque<>();
+  private final ArrayDeque<Turn> redoTurns = new ArrayDeque<>();
+  private Turn current;
+  private long limit = DEFAULT_LIMIT;
+  private long bytes;
+
+  /**
+   * Change the memory limit of the journal, the oldest turns are forgotten if needed.
+   * @param limit
+   *              The limit in bytes, 0 to disable the journal.
+   */
+  void setLimit(long limit) {
+    if(limit < 0) {
+      throw new IllegalArgumentException("The memory limit can't be negative");
+    }
+    this.limit = limit;
+    this.evict();
+  }
+
+  /**
+   * A getter to know the memory limit of the journal.
+   * @return limit, in bytes, 0 if the journal is disabled.
+   */
+  long limit() {
+    return limit;
+  }
+
+  /**
+   * A getter to know the memory used by the turns.
+   * @return an estimation of the memory used, in bytes.
+   */
+  long bytes() {
+    return bytes;
+  }
+
+  /**
+   * Check if the journal records the turns.
+   * @return true if a turn is being recorded.
+   */
+  boolean recording() {
+    return current != null;
+  }
+
+  /**
+   * Start a new turn. The undone turns can't be redone anymore.
+   * @param direction
+   *              The direction of the move.
+   * @param moves
+   *              The moves of the turn, each move is a coordinate and the index of the element (see Board), null if the journal is disabled.
+   * @param movedWords
+   *              The squares of the words moved since the last refresh of the rules before the turn, null if the journal is disabled.
+   * @param wordsAdded
+   *              true if words were added since the last refresh of the rules, before the turn.
+   */
+  void begin(int direction, long[] moves, int[] movedWords, boolean wordsAdded) {
+    for(var turn: redoTurns) {
+      bytes -= turn.bytes;
+    }
+    redoTurns.clear();
+    current = null;
+    if(limit == 0) {
+      return;
+    }
+    Objects.requireNonNull(moves);
+    Objects.requireNonNull(movedWords);
+    current = new Turn(direction, moves, movedWords, wordsAdded);
+    undoTurns.addLast(current);
+    this.grow(current.bytes);
+  }
+
+  /**
+   * Add to the current turn a group of words whose rules were read again.
+   * @param key
+   *              The key of the group of words (see RuleManager.groupKey).
+   * @param before
+   *              The rules of the line before, null if it had no rule.
+   * @param after
+   *              The rules of the line after, null if it has no rule.
+   */
+  void line(int key, HashMap<Item, Set<Rule>> before, HashMap<Item, Set<Rule>> after) {
+    if(current != null && before != after) {
+      current.lines.add(new Line(key, before, after));
+      current.bytes += LINE_BYTES;
+      this.grow(LINE_BYTES);
+    }
+  }
+
+  /**
+   * Add to the current turn the change of the compiled rules.
+   * @param before
+   *              The rules before the refresh.
+   * @param after
+   *              The rules after the refresh.
+   */
+  void rules(RuleTable before, RuleTable after) {
+    if(current != null) {
+      if(!current.refreshed()) {
+        current.rulesBefore = before;
+      }
+      current.rulesAfter = after;
+    }
+  }
+
+  /**
+   * Add to the current turn an item transformed in another one.
+   * @param item
+   *              The index of the transformed item (see Elements).
+   * @param name
+   *              The index of the item it becomes.
+   * @param moved
+   *              The coordinates of the transformed item.
+   * @param added
+   *              The coordinates where the new item was not already, a part of moved.
+   */
+  void transform(int item, int name, int[] moved, int[] added) {
+    if(current != null) {
+      var size = TRANSFORM_BYTES + (long) (moved.length + added.length) * Integer.BYTES;
+      current.transforms.add(new Transform(item, name, moved, added));
+      current.bytes += size;
+      this.grow(size);
+    }
+  }
+
+  /**
+   * Take the last turn to undo it, it can be redone after.
+   * @return the last turn, or null if there is no turn to undo.
+   */
+  Turn undo() {
+    current = null;
+    var turn = undoTurns.pollLast();
+    if(turn != null) {
+      redoTurns.addLast(turn);
+    }
+    return turn;
+  }
+
+  /**
+   * Take the last undone turn to redo it.
+   * @return the last undone turn, or null if there is no turn to redo.
+   */
+  Turn redo() {
+    current = null;
+    var turn = redoTurns.pollLast();
+    if(turn != null) {
+      undoTurns.addLast(turn);
+    }
+    return turn;
+  }
+
+  /**
+   * A getter to know how many turns can be undone.
+   * @return the number of turns to undo.
+   */
+  int undoCount() {
+    return undoTurns.size();
+  }
+
+  /**
+   * A getter to know how many turns can be redone.
+   * @return the number of turns to redo.
+   */
+  int redoCount() {
+    return redoTurns.size();
+  }
+
+  /**
+   * Forget all the turns, used when the board is changed outside of a turn.
+   */
+  void clear() {
+    undoTurns.clear();
+    redoTurns.clear();
+    current = null;
+    bytes = 0;
+  }
+
+  /**
+   * Count the memory of a change and forget the oldest turns if the limit is exceeded.
+   * @param size
+   *              The memory of the change, in bytes.
+   */
+  private void grow(long size) {
+    bytes += size;
+    this.evict();
+  }
+
+  /**
+   * Forget the oldest turns until the memory used is under the limit.
+   * The turns to undo are forgotten first, from the oldest, then the turns to redo, from the farthest.
+   */
+  private void evict() {
+    while(bytes > limit) {
+      var turn = undoTurns.pollFirst();
+      if(turn == null) {
+        turn = redoTurns.pollFirst();
+      }
+      if(turn == null) {
+        bytes = 0;
+        return;
+      }
+      bytes -= turn.bytes;
+      if(turn == current) {
+        current = null;
+      }
+    }
+  }
+}
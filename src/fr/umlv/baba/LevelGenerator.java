@@ -0,0 +1,246 @@
+package fr.umlv.baba;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+
+/**
+ * LevelGenerator writes random levels in the text format of SaverLoader, the same seed gives the same level.
+ * The level is written range by range and an element can have several lines, so a level of millions of squares
+ * is never kept in memory.
+ * From the top, the level has the sentences "Name IS Property" (every fourth square, every second range),
+ * then the chains of rocks (a range each, with a free square before and after), then the open area
+ * where the BABAs are placed at random and the other squares are filled with WALL, ROCK, FLAG or TILE with the density.
+ * A valid level starts with BABA IS YOU and FLAG IS WIN (and ROCK IS PUSH if it has chains) and has at least a BABA,
+ * so it respects Board.isValid.
+ *
+ * @see SaverLoader
+ * @see Board
+ */
+public final class LevelGenerator {
+  private static final Item[] FILLING = { Item.WALL, Item.ROCK, Item.FLAG, Item.TILE };
+  private static final int SLOT = 4;
+
+  private final int xMax;
+  private final int yMax;
+  private final long seed;
+  private double density = 0.1;
+  private int sentences = 4;
+  private long youTiles = 1;
+  private int chains;
+  private int chainLength;
+  private boolean valid = true;
+
+  /**
+   * A LevelGenerator starts with a density of 0.1, 4 sentences, a BABA, no chain and valid levels.
+   * @param xMax
+   *              The number of squares in a range.
+   * @param yMax
+   *              The number of squares in a column.
+   * @param seed
+   *              The seed of the random choices.
+   */
+  public LevelGenerator(int xMax, int yMax, long seed) {
+    if(xMax < SLOT - 1 || yMax < 1 || (long) xMax * yMax > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("A level has at least 3 squares by range and less than 2^31 squares");
+    }
+    this.xMax = xMax;
+    this.yMax = yMax;
+    this.seed = seed;
+  }
+
+  /**
+   * Set the part of the squares of the open area filled with items other than BABA.
+   * @param density
+   *              A density between 0 and 1.
+   * @return this generator.
+   */
+  public LevelGenerator setDensity(double density) {
+    if(!(density >= 0 && density <= 1)) {
+      throw new IllegalArgumentException("The density must be between 0 and 1");
+    }
+    this.density = density;
+    return this;
+  }
+
+  /**
+   * Set the number of sentences written at the top of the level.
+   * @param sentences
+   *              The number of sentences.
+   * @return this generator.
+   */
+  public LevelGenerator setSentences(int sentences) {
+    if(sentences < 0) {
+      throw new IllegalArgumentException("The number of sentences can't be negative");
+    }
+    this.sentences = sentences;
+    return this;
+  }
+
+  /**
+   * Set the number of BABAs placed in the open area.
+   * @param youTiles
+   *              The number of BABAs.
+   * @return this generator.
+   */
+  public LevelGenerator setYouTiles(long youTiles) {
+    if(youTiles < 0) {
+      throw new IllegalArgumentException("The number of BABAs can't be negative");
+    }
+    this.youTiles = youTiles;
+    return this;
+  }
+
+  /**
+   * Set the chains of rocks, each one in its own range.
+   * @param chains
+   *              The number of chains.
+   * @param chainLength
+   *              The number of rocks of a chain.
+   * @return this generator.
+   */
+  public LevelGenerator setChains(int chains, int chainLength) {
+    if(chains < 0 || chainLength < 0) {
+      throw new IllegalArgumentException("The chains can't be negative");
+    }
+    if(chains > 0 && chainLength > xMax - 2) {
+      throw new IllegalArgumentException("A chain needs a free square before and after it");
+    }
+    this.chains = chains;
+    this.chainLength = chainLength;
+    return this;
+  }
+
+  /**
+   * Choose if the level has to respect Board.isValid.
+   * @param valid
+   *              true to start with the sentences of a valid level and place at least a BABA.
+   * @return this generator.
+   */
+  public LevelGenerator setValid(boolean valid) {
+    this.valid = valid;
+    return this;
+  }
+
+  /**
+   * Write the level in a file.
+   *
+   * @param path
+   *              The path of the file.
+   * @return the number of elements written.
+   * @throws IOException
+   *              If the file can't be written.
+   */
+  public long write(Path path) throws IOException {
+    Objects.requireNonNull(path);
+    try(var writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      return this.write(writer);
+    }
+  }
+
+  /**
+   * Write the level, range by range.
+   *
+   * @param writer
+   *              The writer, it is not closed.
+   * @return the number of elements written.
+   * @throws IOException
+   *              If the writer fails.
+   */
+  public long write(BufferedWriter writer) throws IOException {
+    Objects.requireNonNull(writer);
+    var fixed = this.fixedSentences();
+    var total = Math.max(sentences, fixed.length);
+    var slots = (xMax + 1) / SLOT;
+    var ruleRanges = total == 0 ? 0 : ((total + slots - 1) / slots) * 2;
+    var openStart = ruleRanges + chains * 2;
+    if(openStart > yMax) {
+      throw new IllegalArgumentException("The level is too small for its sentences and chains");
+    }
+    var candidates = (long) (yMax - openStart) * xMax;
+    var needed = valid ? Math.max(youTiles, 1) : youTiles;
+    if(needed > candidates) {
+      throw new IllegalArgumentException("The level is too small for " + needed + " BABAs");
+    }
+    var random = new SplittableRandom(seed);
+    var names = Name.values();
+    var properties = Property.values();
+    var range = new StringBuilder[Elements.COUNT];
+    var written = 0L;
+    writer.write(xMax + SaverLoader.SEPARATOR + yMax);
+    writer.newLine();
+    for(var y = 0; y < yMax; y++) {
+      for(var x = 0; x < xMax; x++) {
+        var coord = y * xMax + x;
+        Element element = null;
+        if(y < ruleRanges) {
+          var sentence = (y / 2) * slots + x / SLOT;
+          if(y % 2 == 0 && x % SLOT < 3 && sentence < total) {
+            if(x % SLOT == 0) {
+              element = sentence < fixed.length ? fixed[sentence][0] : names[random.nextInt(names.length)];
+            }
+            else if(x % SLOT == 1) {
+              element = Operator.IS;
+            }
+            else {
+              element = sentence < fixed.length ? fixed[sentence][2] : properties[random.nextInt(properties.length)];
+            }
+          }
+        }
+        else if(y < openStart) {
+          if((y - ruleRanges) % 2 == 0 && x >= 1 && x <= chainLength) {
+            element = Item.ROCK;
+          }
+        }
+        else {
+          if(needed > 0 && random.nextLong(candidates) < needed) {
+            element = Item.BABA;
+            needed--;
+          }
+          else if(density > 0 && random.nextDouble() < density) {
+            element = FILLING[random.nextInt(FILLING.length)];
+          }
+          candidates--;
+        }
+        if(element != null) {
+          var index = Elements.indexOf(element);
+          if(range[index] == null) {
+            range[index] = new StringBuilder();
+          }
+          range[index].append(SaverLoader.SEPARATOR).append(coord);
+          written++;
+        }
+      }
+      for(var i = 0; i < range.length; i++) {
+        if(range[i] != null && range[i].length() != 0) {
+          var element = Elements.get(i);
+          writer.write(SaverLoader.typeCode(element) + SaverLoader.SEPARATOR + element);
+          writer.append(range[i]);
+          writer.newLine();
+          range[i].setLength(0);
+        }
+      }
+    }
+    return written;
+  }
+
+  /**
+   * Give the sentences a valid level starts with.
+   * @return the sentences, as a name, an operator and a property.
+   */
+  private Element[][] fixedSentences() {
+    if(!valid) {
+      return new Element[0][];
+    }
+    if(chains > 0 && chainLength > 0) {
+      return new Element[][] {
+        { Name.TBABA, Operator.IS, Property.YOU }, { Name.TFLAG, Operator.IS, Property.WIN }, { Name.TROCK, Operator.IS, Property.PUSH } };
+    }
+    return new Element[][] { { Name.TBABA, Operator.IS, Property.YOU }, { Name.TFLAG, Operator.IS, Property.WIN } };
+  }
+}
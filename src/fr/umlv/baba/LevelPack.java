@@ -0,0 +1,411 @@
+package fr.umlv.baba;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ * LevelPack keeps many levels in one file : a header, an index with the name, the size and the place of each level,
+ * then the levels in the format of BinaryLevelFormat, each one compressed with deflate if it makes it smaller.
+ * Opening a pack only reads its header and its index, a level is read from the file when it is loaded
+ * and the last levels read are kept uncompressed in a LRU cache, so going back to a level doesn't read the file again.
+ * The header is the magic number "BPAK", the version of the format, the number of levels and the number of bytes of the index.
+ * An entry of the index is the length of the name and the name in UTF-8, xMax, yMax, the position of the level in the file,
+ * its number of bytes in the file, its number of bytes uncompressed and its compression. All the numbers are in little endian order.
+ * A pack can be used by several threads.
+ *
+ * @see BinaryLevelFormat
+ * @see SaverLoader#openPack(Path)
+ */
+public final class LevelPack implements Closeable {
+  private static final int MAGIC = 'B' | 'P' << 8 | 'A' << 16 | 'K' << 24;
+  private static final short VERSION = 1;
+  private static final int HEADER_BYTES = 4 + 2 + 4 + 4;
+  private static final int ENTRY_BYTES = 2 + 4 + 4 + 8 + 4 + 4 + 1;
+  private static final byte STORED = 0;
+  private static final byte DEFLATED = 1;
+  /**
+   * The number of levels kept in the cache by default.
+   */
+  public static final int DEFAULT_CACHE_SIZE = 16;
+
+  private final Path path;
+  private final FileChannel channel;
+  private final String[] names;
+  private final int[] xMaxs;
+  private final int[] yMaxs;
+  private final long[] offsets;
+  private final int[] lengths;
+  private final int[] sizes;
+  private final byte[] compressions;
+  private final HashMap<String, Integer> indexes = new HashMap<>();
+  private final LinkedHashMap<Integer, ByteBuffer> cache;
+
+  private LevelPack(Path path, FileChannel channel, int count, int cacheSize) {
+    this.path = path;
+    this.channel = channel;
+    this.names = new String[count];
+    this.xMaxs = new int[count];
+    this.yMaxs = new int[count];
+    this.offsets = new long[count];
+    this.lengths = new int[count];
+    this.sizes = new int[count];
+    this.compressions = new byte[count];
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+  /**
+   * Open a pack with a cache of DEFAULT_CACHE_SIZE levels.
+   *
+   * @param path
+   *              The path of the pack.
+   * @return the pack, to close after use.
+   * @throws IOException
+   *              If the pack can't be read.
+   */
+  public static LevelPack open(Path path) throws IOException {
+    return open(path, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Open a pack : only its header and its index are read.
+   *
+   * @param path
+   *              The path of the pack.
+   * @param cacheSize
+   *              The number of levels kept in the cache, 0 to not keep any.
+   * @return the pack, to close after use.
+   * @throws IOException
+   *              If the pack can't be read.
+   */
+  public static LevelPack open(Path path, int cacheSize) throws IOException {
+    Objects.requireNonNull(path);
+    if(cacheSize < 0) {
+      throw new IllegalArgumentException("The size of the cache can't be negative");
+    }
+    var channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      var header = read(channel, 0, HEADER_BYTES);
+      if(header.getInt() != MAGIC) {
+        throw new IllegalArgumentException(path + " is not a level pack");
+      }
+      var version = header.getShort();
+      if(version != VERSION) {
+        throw new IllegalArgumentException("Unsupported version " + version + " of the level pack format");
+      }
+      var count = header.getInt();
+      var indexBytes = header.getInt();
+      if(count < 0 || indexBytes < 0 || (long) count * ENTRY_BYTES > indexBytes || HEADER_BYTES + (long) indexBytes > channel.size()) {
+        throw new IllegalArgumentException("The index of the level pack " + path + " is not correct");
+      }
+      var pack = new LevelPack(path, channel, count, cacheSize);
+      pack.readIndex(read(channel, HEADER_BYTES, indexBytes));
+      return pack;
+    } catch(IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Read the entries of the index.
+   * @param index
+   *              The bytes of the index.
+   */
+  private void readIndex(ByteBuffer index) {
+    var end = HEADER_BYTES + (long) index.capacity();
+    for(var i = 0; i < names.length; i++) {
+      var nameLength = Short.toUnsignedInt(index.getShort());
+      if(nameLength > index.remaining() - (ENTRY_BYTES - 2)) {
+        throw new IllegalArgumentException("The index of the level pack " + path + " is truncated");
+      }
+      var name = new byte[nameLength];
+      index.get(name);
+      names[i] = new String(name, StandardCharsets.UTF_8);
+      xMaxs[i] = index.getInt();
+      yMaxs[i] = index.getInt();
+      offsets[i] = index.getLong();
+      lengths[i] = index.getInt();
+      sizes[i] = index.getInt();
+      compressions[i] = index.get();
+      if(offsets[i] < end || lengths[i] < 0 || sizes[i] < 0 || (compressions[i] != STORED && compressions[i] != DEFLATED)) {
+        throw new IllegalArgumentException("The entry of " + names[i] + " in the level pack " + path + " is not correct");
+      }
+      if(indexes.putIfAbsent(names[i], i) != null) {
+        throw new IllegalArgumentException("The level " + names[i] + " is twice in the level pack " + path);
+      }
+    }
+  }
+
+  /**
+   * Read some bytes of a file.
+   * @param channel
+   *              The file.
+   * @param position
+   *              The position of the first byte.
+   * @param length
+   *              The number of bytes.
+   * @return the bytes, in little endian order.
+   * @throws IOException
+   *              If the bytes can't be read.
+   */
+  private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+    var buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while(buffer.hasRemaining()) {
+      if(channel.read(buffer, position + buffer.position()) == -1) {
+        throw new IllegalArgumentException("The level pack is truncated");
+      }
+    }
+    return buffer.flip();
+  }
+
+  /**
+   * A getter to know the number of levels of the pack.
+   *
+   * @return the number of levels.
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * A getter to know the name of a level, its file name without ".txt" when the pack was written.
+   * @param index
+   *              The index of the level.
+   * @return the name.
+   */
+  public String getName(int index) {
+    Objects.checkIndex(index, names.length);
+    return names[index];
+  }
+
+  /**
+   * A getter to know the number of squares in a range of a level, without loading it.
+   * @param index
+   *              The index of the level.
+   * @return xMax.
+   */
+  public int getXMax(int index) {
+    Objects.checkIndex(index, names.length);
+    return xMaxs[index];
+  }
+
+  /**
+   * A getter to know the number of squares in a column of a level, without loading it.
+   * @param index
+   *              The index of the level.
+   * @return yMax.
+   */
+  public int getYMax(int index) {
+    Objects.checkIndex(index, names.length);
+    return yMaxs[index];
+  }
+
+  /**
+   * Search a level by its name.
+   * @param name
+   *              The name of the level.
+   * @return the index of the level, or -1 if the pack has no level with this name.
+   */
+  public int indexOf(String name) {
+    Objects.requireNonNull(name);
+    return indexes.getOrDefault(name, -1);
+  }
+
+  /**
+   * Load a level. A new Board is built at each call, only the bytes of the level are kept in the cache.
+   * @param index
+   *              The index of the level.
+   * @return the board, with its rules initialized like with SaverLoader.configureLevel.
+   * @throws IOException
+   *              If the level can't be read.
+   */
+  public Board load(int index) throws IOException {
+    Objects.checkIndex(index, names.length);
+    ByteBuffer bytes;
+    synchronized(cache) {
+      bytes = cache.get(index);
+    }
+    if(bytes == null) {
+      bytes = this.readLevel(index);
+      synchronized(cache) {
+        cache.put(index, bytes);
+      }
+    }
+    var board = BinaryLevelFormat.decode(bytes.duplicate(), names[index]);
+    if(board.getXMax() != xMaxs[index] || board.getYMax() != yMaxs[index]) {
+      throw new IllegalArgumentException("The level " + names[index] + " does not have the size of its entry in the index");
+    }
+    return board;
+  }
+
+  /**
+   * Read the bytes of a level from the file and uncompress them.
+   * @param index
+   *              The index of the level.
+   * @return the bytes of the level, read only.
+   * @throws IOException
+   *              If the level can't be read.
+   */
+  private ByteBuffer readLevel(int index) throws IOException {
+    var stored = read(channel, offsets[index], lengths[index]);
+    if(compressions[index] == STORED) {
+      return stored.asReadOnlyBuffer();
+    }
+    var bytes = new byte[sizes[index]];
+    var inflater = new Inflater();
+    try {
+      inflater.setInput(stored);
+      var count = 0;
+      while(count < bytes.length && !inflater.finished()) {
+        var inflated = inflater.inflate(bytes, count, bytes.length - count);
+        if(inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        count += inflated;
+      }
+      if(count != bytes.length || !inflater.finished()) {
+        throw new IllegalArgumentException("The level " + names[index] + " of the level pack " + path + " is not correct");
+      }
+    } catch(DataFormatException e) {
+      throw new IllegalArgumentException("The level " + names[index] + " of the level pack " + path + " is not correct", e);
+    } finally {
+      inflater.end();
+    }
+    return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+  }
+
+  /**
+   * Close the file of the pack, the levels can't be loaded anymore.
+   *
+   * @throws IOException
+   *              If the file can't be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Write a pack from text levels. The levels are read and written one by one, then the index is written at the start of the file.
+   *
+   * @param path
+   *              The path of the pack.
+   * @param levels
+   *              The paths of the text levels, the name of a level is its file name without ".txt".
+   * @param compress
+   *              true to compress the levels that get smaller.
+   * @throws IOException
+   *              If a level can't be read or the pack can't be written.
+   *
+   * @see TextLevelFormat#load(Path)
+   */
+  public static void write(Path path, List<Path> levels, boolean compress) throws IOException {
+    Objects.requireNonNull(path);
+    Objects.requireNonNull(levels);
+    var count = levels.size();
+    var names = new byte[count][];
+    var seen = new HashSet<String>();
+    var indexBytes = 0L;
+    for(var i = 0; i < count; i++) {
+      var name = name(levels.get(i));
+      if(!seen.add(name)) {
+        throw new IllegalArgumentException("Two levels are named " + name);
+      }
+      names[i] = name.getBytes(StandardCharsets.UTF_8);
+      if(names[i].length > 0xFFFF) {
+        throw new IllegalArgumentException("The name of the level " + levels.get(i) + " is too long");
+      }
+      indexBytes += ENTRY_BYTES + names[i].length;
+    }
+    if(indexBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many levels for a level pack");
+    }
+    var index = ByteBuffer.allocate(HEADER_BYTES + (int) indexBytes).order(ByteOrder.LITTLE_ENDIAN);
+    index.putInt(MAGIC).putShort(VERSION).putInt(count).putInt((int) indexBytes);
+    var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    try(var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      var position = (long) index.capacity();
+      for(var i = 0; i < count; i++) {
+        var board = TextLevelFormat.load(levels.get(i));
+        var level = BinaryLevelFormat.encode(board);
+        var size = level.remaining();
+        var compression = STORED;
+        if(compress) {
+          var deflated = deflate(deflater, level);
+          if(deflated.remaining() < size) {
+            level = deflated;
+            compression = DEFLATED;
+          }
+        }
+        var length = level.remaining();
+        index.putShort((short) names[i].length).put(names[i]).putInt(board.getXMax()).putInt(board.getYMax());
+        index.putLong(position).putInt(length).putInt(size).put(compression);
+        while(level.hasRemaining()) {
+          position += channel.write(level, position);
+        }
+      }
+      index.flip();
+      for(var written = 0L; index.hasRemaining();) {
+        written += channel.write(index, written);
+      }
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Compress the bytes of a level.
+   * @param deflater
+   *              The deflater, it is reset.
+   * @param level
+   *              The bytes of the level, from the position to the limit, they are not consumed.
+   * @return the compressed bytes.
+   */
+  private static ByteBuffer deflate(Deflater deflater, ByteBuffer level) {
+    deflater.reset();
+    deflater.setInput(level.duplicate());
+    deflater.finish();
+    var output = ByteBuffer.allocate(level.remaining() + 64);
+    while(!deflater.finished()) {
+      if(!output.hasRemaining()) {
+        output = ByteBuffer.allocate(output.capacity() * 2).put(output.flip());
+      }
+      deflater.deflate(output);
+    }
+    return output.flip();
+  }
+
+  /**
+   * Give the name of a level from its path.
+   * @param level
+   *              The path of the level.
+   * @return the file name without ".txt".
+   */
+  private static String name(Path level) {
+    var name = level.getFileName().toString();
+    return name.endsWith(".txt") ? name.substring(0, name.length() - 4) : name;
+  }
+}
@@ -0,0 +1,95 @@
+package fr.umlv.baba;
+
+import java.util.Objects;
+
+
+/**
+ * MoveOutcome is the result of a sequence of moves played by Board.applyMoves : how many moves were played,
+ * how the game stands after them and the state hash of the board.
+ *
+ * @see Board
+ */
+public final class MoveOutcome {
+  /**
+   * How the game stands after the moves.
+   */
+  public enum Result {
+    /**
+     * A YOU element is on a WIN element, the moves after the win were not played.
+     */
+    WIN,
+    /**
+     * No element is YOU anymore, the moves after the loss were not played.
+     */
+    LOOSE,
+    /**
+     * All the moves were played, the game goes on.
+     */
+    UNFINISHED
+  }
+
+  private final int played;
+  private final Result result;
+  private final long stateHash;
+
+  /**
+   * A MoveOutcome is built by the board at the end of the moves.
+   * @param played
+   *              The number of moves played.
+   * @param result
+   *              How the game stands.
+   * @param stateHash
+   *              The state hash of the board after the moves.
+   */
+  MoveOutcome(int played, Result result, long stateHash) {
+    this.played = played;
+    this.result = Objects.requireNonNull(result);
+    this.stateHash = stateHash;
+  }
+
+  /**
+   * A getter to know the number of moves played, the index of the first move not played.
+   *
+   * @return played
+   */
+  public int getPlayed() {
+    return played;
+  }
+
+  /**
+   * A getter to know how the game stands after the moves.
+   *
+   * @return result
+   */
+  public Result getResult() {
+    return result;
+  }
+
+  /**
+   * A getter to know the state hash of the board after the moves (see Board.stateHash).
+   *
+   * @return stateHash
+   */
+  public long getStateHash() {
+    return stateHash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if(!(obj instanceof MoveOutcome)) {
+      return false;
+    }
+    var outcome = (MoveOutcome) obj;
+    return played == outcome.played && result == outcome.result && stateHash == outcome.stateHash;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(played, result, stateHash);
+  }
+
+  @Override
+  public String toString() {
+    return result + " after " + played + " moves, state " + Long.toHexString(stateHash);
+  }
+}
@@ -0,0 +1,100 @@
+package fr.umlv.baba;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+
+/**
+ * PackedState is the state of a board packed by a StateCodec in an array of longs.
+ * The packing is canonical : two boards with the same size, the same elements in the same squares and the same rules
+ * give equal PackedStates, so it can be kept in a set of visited states, as a checkpoint or saved as bytes.
+ * A PackedState is never modified.
+ *
+ * @see StateCodec
+ */
+public final class PackedState {
+  private final long[] data;
+  private final int hash;
+
+  /**
+   * A PackedState is built by StateCodec or from bytes.
+   * @param data
+   *              The packed state, it is not copied.
+   */
+  PackedState(long[] data) {
+    this.data = data;
+    var hash = 0L;
+    for(var value: data) {
+      hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+    }
+    this.hash = (int) (hash ^ hash >>> 32);
+  }
+
+  /**
+   * Read a PackedState saved by toByteArray.
+   *
+   * @param bytes
+   *              The bytes of the state.
+   * @return the PackedState.
+   *
+   * @see #toByteArray()
+   */
+  public static PackedState fromByteArray(byte[] bytes) {
+    Objects.requireNonNull(bytes);
+    if(bytes.length % Long.BYTES != 0) {
+      throw new IllegalArgumentException("The bytes are not a packed state");
+    }
+    var data = new long[bytes.length / Long.BYTES];
+    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(data);
+    StateCodec.check(data);
+    return new PackedState(data);
+  }
+
+  /**
+   * Give the longs of the state, for StateCodec.
+   *
+   * @return data, not copied.
+   */
+  long[] data() {
+    return data;
+  }
+
+  /**
+   * Save the state in bytes, in little endian order.
+   *
+   * @return a new array of bytes.
+   *
+   * @see #fromByteArray(byte[])
+   */
+  public byte[] toByteArray() {
+    var buffer = ByteBuffer.allocate(data.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.asLongBuffer().put(data);
+    return buffer.array();
+  }
+
+  /**
+   * A getter to know the size of the packed state.
+   *
+   * @return the number of bytes of the state.
+   */
+  public int byteSize() {
+    return data.length * Long.BYTES;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof PackedState && hash == ((PackedState) obj).hash && Arrays.equals(data, ((PackedState) obj).data);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return "PackedState " + StateCodec.xMax(data) + "x" + StateCodec.yMax(data) + " (" + byteSize() + " bytes)";
+  }
+}
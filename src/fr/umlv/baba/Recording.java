@@ -0,0 +1,177 @@
+package fr.umlv.baba;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+
+/**
+ * Recording keeps the moves of a game session to play them again : the path of the level, the moves and how the game ended.
+ * An undone move is removed from the moves and a redone one comes back, so the moves always lead to the current state.
+ * A recording is saved in a text file of three lines : the path of the level, a letter by move (L, R, U or D),
+ * then the result, the number of moves and the state hash, like "WIN#8#6f1c2a9e03b4d7e5".
+ *
+ * @see Direction
+ * @see MoveOutcome
+ */
+public final class Recording {
+  private final Path level;
+  private Direction[] moves = new Direction[64];
+  private int count;
+  private int current;
+  private MoveOutcome outcome;
+
+  /**
+   * A Recording starts without any move.
+   * @param level
+   *              The path of the level file, as given to SaverLoader.configureLevel.
+   */
+  public Recording(Path level) {
+    this.level = Objects.requireNonNull(level);
+  }
+
+  /**
+   * A getter to know the path of the level.
+   *
+   * @return level
+   */
+  public Path getLevel() {
+    return level;
+  }
+
+  /**
+   * Give the moves that lead to the current state.
+   *
+   * @return a new array with the moves, in the order they were played.
+   */
+  public Direction[] getMoves() {
+    return Arrays.copyOf(moves, current);
+  }
+
+  /**
+   * A getter to know how the game ended.
+   *
+   * @return outcome, null if the recording is not finished.
+   */
+  public MoveOutcome getOutcome() {
+    return outcome;
+  }
+
+  /**
+   * Add a move, the undone moves that could be redone are forgotten.
+   * @param direction
+   *              The direction of the move.
+   */
+  public void record(Direction direction) {
+    Objects.requireNonNull(direction);
+    if(current == moves.length) {
+      moves = Arrays.copyOf(moves, current * 2);
+    }
+    moves[current++] = direction;
+    count = current;
+  }
+
+  /**
+   * Remove the last move, after it was undone on the board.
+   *
+   * @return true if a move was removed.
+   */
+  public boolean undo() {
+    if(current == 0) {
+      return false;
+    }
+    current--;
+    return true;
+  }
+
+  /**
+   * Add again the last removed move, after it was redone on the board.
+   *
+   * @return true if a move was added.
+   */
+  public boolean redo() {
+    if(current == count) {
+      return false;
+    }
+    current++;
+    return true;
+  }
+
+  /**
+   * Remember how the game ends, the board is in its final state.
+   * @param board
+   *              The board of the game.
+   */
+  public void finish(Board board) {
+    Objects.requireNonNull(board);
+    var result = board.isWin() ? MoveOutcome.Result.WIN : board.isLoose() ? MoveOutcome.Result.LOOSE : MoveOutcome.Result.UNFINISHED;
+    outcome = new MoveOutcome(current, result, board.stateHash());
+  }
+
+  /**
+   * Save the recording in a file.
+   *
+   * @param path
+   *              The path of the file.
+   * @throws IOException
+   *              If the file can't be written.
+   */
+  public void save(Path path) throws IOException {
+    Objects.requireNonNull(path);
+    if(outcome == null) {
+      throw new IllegalStateException("The recording is not finished");
+    }
+    var letters = new StringBuilder(current);
+    for(var i = 0; i < current; i++) {
+      letters.append(moves[i].name().charAt(0));
+    }
+    var last = outcome.getResult() + SaverLoader.SEPARATOR + outcome.getPlayed() + SaverLoader.SEPARATOR + Long.toHexString(outcome.getStateHash());
+    Files.write(path, List.of(level.toString(), letters.toString(), last), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Load a recording saved by save.
+   *
+   * @param path
+   *              The path of the file.
+   * @return the recording, finished.
+   * @throws IOException
+   *              If the file can't be read.
+   */
+  public static Recording load(Path path) throws IOException {
+    Objects.requireNonNull(path);
+    var lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+    if(lines.size() != 3) {
+      throw new IllegalArgumentException("A recording has three lines");
+    }
+    var recording = new Recording(Path.of(lines.get(0)));
+    for(var letter: lines.get(1).toCharArray()) {
+      recording.record(direction(letter));
+    }
+    var tokens = lines.get(2).split(SaverLoader.SEPARATOR);
+    if(tokens.length != 3) {
+      throw new IllegalArgumentException("The outcome of the recording is not correct (last line)");
+    }
+    recording.outcome = new MoveOutcome(Integer.parseInt(tokens[1]), MoveOutcome.Result.valueOf(tokens[0]), Long.parseUnsignedLong(tokens[2], 16));
+    return recording;
+  }
+
+  /**
+   * Give the direction of a letter of a saved recording.
+   * @param letter
+   *              The first letter of the name of the direction.
+   * @return the direction.
+   */
+  private static Direction direction(char letter) {
+    for(var direction: Direction.values()) {
+      if(direction.name().charAt(0) == letter) {
+        return direction;
+      }
+    }
+    throw new IllegalArgumentException("Unknown move " + letter + " in the recording");
+  }
+}
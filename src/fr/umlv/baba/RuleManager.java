@@ -8,152 +8,281 @@ import java.util.Set;
 
 /**
  * RuleManager is looking the Board to refresh the current rules during the evolution of the game.
+ * The rules are read in one pass along each range and each column, only on the squares containing words.
+ * A rule is a list of names linked by AND, the operator IS, then a list of names or properties linked by AND.
  *
  */
 public class RuleManager {
+  private static final long NAME_MASK = Elements.mask(Type.NAME);
+  private static final long RULE_MASK = Elements.mask(Type.PROPERTY) | NAME_MASK;
+  private static final long IS_BIT = Elements.bit(Operator.IS);
+  private static final long AND_BIT = Elements.bit(Operator.AND);
+
   /**
-   * Direction is an enum that contains RIGHT and DOWN. It let the possibility to know if a rule is read vertically or horizontally.
+   * Parser reads the words of a line square by square and adds the rules it recognizes.
+   * It follows two sentences at once : the names that can become the subject of a rule,
+   * and the rule that is currently read after an operator IS.
    *
    */
-  private enum Direction {
-    RIGHT, DOWN;
+  private static final class Parser {
+    private final HashMap<Item, Set<Rule>> rules;
+    private long subjects;
+    private boolean subjectsNeedName = true;
+    private long verbSubjects;
+    private boolean verbNeedRule;
+
+    /**
+     * A Parser adds the rules it reads in a HashMap.
+     * @param rules
+     *            The HashMap where the rules are added.
+     */
+    private Parser(HashMap<Item, Set<Rule>> rules) {
+      this.rules = rules;
+    }
+
+    /**
+     * Forget the words already read, used when the line is interrupted by a square without word.
+     */
+    private void reset() {
+      subjects = 0;
+      subjectsNeedName = true;
+      verbSubjects = 0;
+      verbNeedRule = false;
+    }
+
+    /**
+     * Read the next square of the line.
+     * @param words
+     *            The words in the square, a bit by element (see Elements).
+     */
+    private void read(long words) {
+      var isOperator = (words & IS_BIT) != 0;
+      var andOperator = (words & AND_BIT) != 0;
+      var targets = words & RULE_MASK;
+      var names = words & NAME_MASK;
+      var nextVerbSubjects = 0L;
+      var nextVerbNeedRule = false;
+      var andInRule = false;
+      if(subjects != 0 && !subjectsNeedName && isOperator) {
+        nextVerbSubjects = subjects;
+        nextVerbNeedRule = true;
+      }
+      else if(verbSubjects != 0 && verbNeedRule && targets != 0) {
+        this.addRules(verbSubjects, targets);
+        nextVerbSubjects = verbSubjects;
+      }
+      else if(verbSubjects != 0 && !verbNeedRule && andOperator) {
+        nextVerbSubjects = verbSubjects;
+        nextVerbNeedRule = true;
+        andInRule = true;
+      }
+      verbSubjects = nextVerbSubjects;
+      verbNeedRule = nextVerbNeedRule;
+      if(names != 0) {
+        subjects = subjectsNeedName ? subjects | names : names;
+        subjectsNeedName = false;
+      }
+      else if(subjects != 0 && !subjectsNeedName && andOperator && !andInRule) {
+        subjectsNeedName = true;
+      }
+      else {
+        subjects = 0;
+        subjectsNeedName = true;
+      }
+    }
+
+    /**
+     * Add a rule for each subject and each target.
+     * @param subjects
+     *            The names before the operator IS.
+     * @param targets
+     *            The names or properties after the operator IS.
+     */
+    private void addRules(long subjects, long targets) {
+      for(var names = subjects; names != 0; names &= names - 1) {
+        var name = (Name) Elements.get(Long.numberOfTrailingZeros(names));
+        var nameRules = rules.computeIfAbsent(name.getItem(), item -> new HashSet<>());
+        for(var remaining = targets; remaining != 0; remaining &= remaining - 1) {
+          nameRules.add((Rule) Elements.get(Long.numberOfTrailingZeros(remaining)));
+        }
+      }
+    }
   }
-  
+
   /**
-   * searchRules browses a HashMap of elements and observes if each name is potentially followed by an operator and a rule.
-   * The rule is add at a new rules HashMap
-   * 
-   * @param elements
-   *              regroup all the elements (of a board) and their coordinates.
+   * Give the key of a group of consecutive words, from its first square. The groups of a range and of a column have different keys.
+   *
+   * @param start
+   *              The coordinate of the first word of the group.
+   * @param step
+   *              The gap between two squares of the group (1 for a range, xMax for a column).
+   * @return the key of the group.
+   */
+  static int groupKey(int start, int step) {
+    return step == 1 ? start * 2 : start * 2 + 1;
+  }
+
+  /**
+   * Add the keys of the groups of words that can change when a word leaves or reaches a square : in its range and in its column,
+   * the group that contains the square or ends just before it, and the group that starts just after it.
+   * Only the words of these groups are read, so the cost depends on the length of the sentences, not on the size of the board.
+   *
+   * @param words
+   *              the squares of the board containing at least a word, after the move.
+   * @param coord
+   *              The coordinate of the square.
+   * @param xMax
+   *              the number of squares in a range in a board.
+   * @param keys
+   *              The set receiving the keys (see groupKey).
+   */
+  static void groupKeys(CoordSet words, int coord, int xMax, Set<Integer> keys) {
+    var start = coord;
+    while(start % xMax != 0 && words.contains(start - 1)) {
+      start--;
+    }
+    keys.add(groupKey(start, 1));
+    keys.add(groupKey(coord, 1));
+    if((coord + 1) % xMax != 0) {
+      keys.add(groupKey(coord + 1, 1));
+    }
+    start = coord;
+    while(words.contains(start - xMax)) {
+      start -= xMax;
+    }
+    keys.add(groupKey(start, xMax));
+    keys.add(groupKey(coord, xMax));
+    if(coord + xMax < words.capacity()) {
+      keys.add(groupKey(coord + xMax, xMax));
+    }
+  }
+
+  /**
+   * searchRules reads all the words of a board and returns all the rules they form.
+   *
+   * @param cells
+   *              the occupation of each square of the board, a bit by element (see Elements).
+   * @param words
+   *              the squares of the board containing at least a word.
    * @param xMax
    *              the number of squares in a range in a board. Useful to verify if a neighbor word is not in a different range.
    * @return a HashMap containing all the rules grouped by item. Indeed, only the items can change rules.
-   * 
+   *
    *@see HashMap
    *@see Item
    *@see Set
    *@see Rule
-   *@see Element
-   *@see Integer
+   *@see CoordSet
+   *@see Elements
    *
    */
-  public static HashMap<Item, Set<Rule>> searchRules(HashMap<Element, Set<Integer>> elements, int xMax) {
-    Objects.requireNonNull(elements);
-    if(xMax < 0) {
-      throw new IllegalArgumentException("xMax must be positive");
-    }
+  public static HashMap<Item, Set<Rule>> searchRules(long[] cells, CoordSet words, int xMax) {
     var rules = new HashMap<Item, Set<Rule>>();
-    elements.forEach((element, coordList) -> {
-      if(element.getType() == Type.NAME) {
-        var name = (Name) element;
-        rules.put(name.getItem(), searchOperator(elements, coordList, xMax));
-      }
-    });
+    for(var lineRules: searchLines(cells, words, xMax).values()) {
+      lineRules.forEach((item, ruleList) -> rules.computeIfAbsent(item, key -> new HashSet<>()).addAll(ruleList));
+    }
     return rules;
   }
-  
+
   /**
-   * searchOperator browses a HashMap of elements and observes if a specific name is followed by an operator at its right or at its down.
-   * If yes, look at the coordinates of the operator a following property.
-   * 
-   * @param elements
-   *              regroup all the elements (of a board) and their coordinates.
-   * @param coordinates
-   *              A set with the coordinates where the Name is.
+   * searchLines reads all the words of a board and returns the rules of each group of consecutive words of a range or a column.
+   * Each word is read once horizontally and once vertically, from the first word of its group.
+   *
+   * @param cells
+   *              the occupation of each square of the board, a bit by element (see Elements).
+   * @param words
+   *              the squares of the board containing at least a word.
    * @param xMax
-   *              the number of squares in a range in a board. Useful to verify if a neighbor word is not in a different range.
-   * @return a set of all the rules founded for an element.
-   * 
-   * @see Integer
-   * @see HashMap
-   * @see Set
-   * @see Rule
-   * @see Element
+   *              the number of squares in a range in a board.
+   * @return a HashMap containing the rules of each group which contains rules, by key of group (see groupKey).
    *
+   *@see HashMap
+   *@see Item
+   *@see Set
+   *@see Rule
    */
-  private static Set<Rule> searchOperator(HashMap<Element, Set<Integer>> elements, Set<Integer> coordinates, int xMax) {
-    Objects.requireNonNull(elements);
-    Objects.requireNonNull(coordinates);
-    if(xMax < 0) {
+  static HashMap<Integer, HashMap<Item, Set<Rule>>> searchLines(long[] cells, CoordSet words, int xMax) {
+    Objects.requireNonNull(cells);
+    Objects.requireNonNull(words);
+    if(xMax <= 0) {
       throw new IllegalArgumentException("xMax must be positive");
     }
-    var rules = new HashSet<Rule>();
-    elements.forEach((element, coordList) -> {
-      if(element.getType() == Type.OPERATOR) {
-        for(var coord: coordinates) {
-          if(coord / xMax == (coord + 1) / xMax) {
-            if(coordList.contains(coord + 1)) {
-              var operator = (Operator) element;
-              rules.addAll(searchProperty(elements, operator, coord + 1, xMax, Direction.RIGHT));
-            }
-          }
-          if(coordList.contains(coord + xMax)) {
-            var operator = (Operator) element;
-            rules.addAll(searchProperty(elements, operator, coord + xMax, xMax, Direction.DOWN));
-          }
-        }
+    var lines = new HashMap<Integer, HashMap<Item, Set<Rule>>>();
+    for(var coord = words.next(0); coord != -1; coord = words.next(coord + 1)) {
+      if(coord % xMax == 0 || !words.contains(coord - 1)) {
+        var rules = new HashMap<Item, Set<Rule>>();
+        readWords(cells, words, coord, 1, (coord / xMax + 1) * xMax, new Parser(rules));
+        lines.put(groupKey(coord, 1), rules);
       }
-    });
-    return rules;
+      if(!words.contains(coord - xMax)) {
+        var rules = new HashMap<Item, Set<Rule>>();
+        readWords(cells, words, coord, xMax, cells.length, new Parser(rules));
+        lines.put(groupKey(coord, xMax), rules);
+      }
+    }
+    lines.values().removeIf(HashMap::isEmpty);
+    return lines;
   }
-  
+
   /**
-   * searchProperty browses a HashMap of elements and observes if a specific operator is followed by a property at its right or at its down.
-   * If yes, return a set of the founded rules.
-   * 
-   * @param elements
-   *              Regroup all the elements (of a board) and their coordinates.
-   * @param operator
-   *              The operator concerned by the rule.
-   * @param coord
-   *              The coordinate of the operator.
+   * searchGroup reads the words of a single group of consecutive words.
+   *
+   * @param cells
+   *              the occupation of each square of the board, a bit by element (see Elements).
+   * @param words
+   *              the squares of the board containing at least a word.
+   * @param key
+   *              The key of the group (see groupKey).
    * @param xMax
-   *              The number of squares in a range in a board. Useful to verify if a neighbor word is not in a different range.
-   * @param direction
-   *               The direction of the reading of the rule. RIGHT if the rule is horizontal and DOWN if it's vertical.
-   * @return a set of all the rules founded with this operator.
-   * 
-   * @see Integer
-   * @see HashMap
-   * @see Set
-   * @see Rule
-   * @see Element
-   * @see Operator
-   * @see Direction
+   *              the number of squares in a range in a board.
+   * @return a HashMap containing the rules of the group grouped by item, empty if no group starts at the square of the key.
    *
+   *@see HashMap
+   *@see Item
+   *@see Set
+   *@see Rule
    */
-  private static Set<Rule> searchProperty(HashMap<Element, Set<Integer>> elements, Operator operator, int coord, int xMax, Direction direction) {
-    Objects.requireNonNull(elements);
-    Objects.requireNonNull(operator);
-    Objects.requireNonNull(direction);
-    if(xMax < 0) {
+  static HashMap<Item, Set<Rule>> searchGroup(long[] cells, CoordSet words, int key, int xMax) {
+    Objects.requireNonNull(cells);
+    Objects.requireNonNull(words);
+    if(xMax <= 0) {
       throw new IllegalArgumentException("xMax must be positive");
     }
-    if(coord < 0) {
-      throw new IllegalArgumentException("coordinates must be positive");
-    }
-    var rules = new HashSet<Rule>();
-    elements.forEach((element, coordList) -> {
-      if(element.getType() == Type.PROPERTY || element.getType() == Type.NAME) {
-        int dir;
-        if(direction == Direction.RIGHT) {
-          dir = 1;
-        }
-        else if(direction == Direction.DOWN) {
-          dir = xMax;
-        }
-        else {
-          throw new IllegalArgumentException("Unknown direction");
-        }
-        if(coordList.contains(coord + dir)) {
-          if((dir == 1 && coord / xMax == (coord + dir) / xMax) || dir == xMax) {
-            if(operator == Operator.IS) {
-              rules.add((Rule) element);
-            }
-          }
-        }
+    var rules = new HashMap<Item, Set<Rule>>();
+    var start = key / 2;
+    if(key % 2 == 0) {
+      if(words.contains(start) && (start % xMax == 0 || !words.contains(start - 1))) {
+        readWords(cells, words, start, 1, (start / xMax + 1) * xMax, new Parser(rules));
       }
-    });
+    }
+    else if(words.contains(start) && !words.contains(start - xMax)) {
+      readWords(cells, words, start, xMax, cells.length, new Parser(rules));
+    }
     return rules;
   }
+
+  /**
+   * Read a group of consecutive words in a line.
+   *
+   * @param cells
+   *              the occupation of each square of the board, a bit by element (see Elements).
+   * @param words
+   *              the squares of the board containing at least a word.
+   * @param coord
+   *              The coordinate of the first word of the group.
+   * @param step
+   *              The gap between two squares of the line (1 for a range, xMax for a column).
+   * @param end
+   *              The coordinate where the line ends (excluded).
+   * @param parser
+   *              The parser that reads the words.
+   * @return the coordinate of the first square after the group.
+   */
+  private static int readWords(long[] cells, CoordSet words, int coord, int step, int end, Parser parser) {
+    parser.reset();
+    for(; coord < end && words.contains(coord); coord += step) {
+      parser.read(cells[coord]);
+    }
+    return coord;
+  }
 }
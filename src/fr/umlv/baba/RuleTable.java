@@ -0,0 +1,245 @@
+package fr.umlv.baba;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * RuleTable is the compiled form of the rules of a board, indexed by the index of the elements (see Elements).
+ * Each element has a mask of its properties and a mask of the names it becomes, so checking a rule is an array read.
+ * A RuleTable is never modified, a board builds a new one when its rules change.
+ *
+ * @see Elements
+ * @see Property
+ * @see Name
+ */
+public final class RuleTable {
+  private static final long WORD_MASK = ~Elements.mask(Type.ITEM);
+  private static final int ITEMS = Item.values().length;
+  private static final int PROPERTIES = Property.values().length;
+  private static final int NAMES = Name.values().length;
+  private static final int FIRST_NAME = Elements.indexOf(Name.values()[0]);
+  private static final int RULE_BITS = PROPERTIES + NAMES;
+
+  /**
+   * The rules of a board without any rule written, only the words have the PUSH property.
+   */
+  public static final RuleTable EMPTY = compile(Set.of());
+
+  private final int[] properties;
+  private final long[] names;
+  private final long[] elements;
+
+  /**
+   * A RuleTable is built from the masks of each element.
+   * @param properties
+   *              The properties of each element, a bit by ordinal of Property.
+   * @param names
+   *              The names each element becomes, a bit by element.
+   */
+  private RuleTable(int[] properties, long[] names) {
+    this.properties = properties;
+    this.names = names;
+    this.elements = new long[Property.values().length];
+    for(var i = 0; i < Elements.COUNT; i++) {
+      for(var property = properties[i]; property != 0; property &= property - 1) {
+        elements[Integer.numberOfTrailingZeros(property)] |= 1L << i;
+      }
+    }
+  }
+
+  /**
+   * Compile the rules read on a board. The words always have the PUSH property.
+   *
+   * @param lines
+   *              The rules read in each line of the board, grouped by item.
+   * @return the compiled rules.
+   *
+   * @see RuleManager
+   * @see Item
+   * @see Rule
+   */
+  static RuleTable compile(Collection<HashMap<Item, Set<Rule>>> lines) {
+    Objects.requireNonNull(lines);
+    var properties = new int[Elements.COUNT];
+    var names = new long[Elements.COUNT];
+    for(var word = WORD_MASK & ((1L << Elements.COUNT) - 1); word != 0; word &= word - 1) {
+      properties[Long.numberOfTrailingZeros(word)] |= 1 << Property.PUSH.ordinal();
+    }
+    for(var line: lines) {
+      line.forEach((item, rules) -> {
+        var index = Elements.indexOf(item);
+        for(var rule: rules) {
+          if(rule.getType() == Type.PROPERTY) {
+            properties[index] |= 1 << rule.ordinal();
+          }
+          else {
+            names[index] |= Elements.bit(rule);
+          }
+        }
+      });
+    }
+    return new RuleTable(properties, names);
+  }
+
+  /**
+   * Pack the rules in a long : for each item, the mask of its properties then the mask of the names it becomes.
+   * The rules of the words are not packed, the words always have only the PUSH property.
+   *
+   * @return the packed rules.
+   * @throws IllegalStateException
+   *              If the items, the properties and the names are too many to fit in a long.
+   *
+   * @see #unpack(long)
+   */
+  long pack() {
+    checkPackable();
+    var packed = 0L;
+    for(var i = 0; i < ITEMS; i++) {
+      var rules = properties[i] | (names[i] >>> FIRST_NAME) << PROPERTIES;
+      packed |= rules << (i * RULE_BITS);
+    }
+    return packed;
+  }
+
+  /**
+   * Check that the rules of all the items fit in a long. Only the packing needs it,
+   * so more items or properties only forbid the snapshots, not the game.
+   */
+  private static void checkPackable() {
+    if(ITEMS * RULE_BITS > Long.SIZE) {
+      throw new IllegalStateException("Too many rules to pack them in a long");
+    }
+  }
+
+  /**
+   * Build the rules packed by pack.
+   *
+   * @param packed
+   *              The packed rules.
+   * @return the rules.
+   * @throws IllegalStateException
+   *              If the items, the properties and the names are too many to fit in a long.
+   *
+   * @see #pack()
+   */
+  static RuleTable unpack(long packed) {
+    checkPackable();
+    if(ITEMS * RULE_BITS < Long.SIZE && packed >>> (ITEMS * RULE_BITS) != 0) {
+      throw new IllegalArgumentException("Unknown rules in " + Long.toHexString(packed));
+    }
+    var properties = EMPTY.properties.clone();
+    var names = new long[Elements.COUNT];
+    for(var i = 0; i < ITEMS; i++) {
+      var rules = packed >>> (i * RULE_BITS);
+      properties[i] = (int) (rules & ((1 << PROPERTIES) - 1));
+      names[i] = (rules >>> PROPERTIES & ((1 << NAMES) - 1)) << FIRST_NAME;
+    }
+    return new RuleTable(properties, names);
+  }
+
+  /**
+   * Check if an element has a property.
+   *
+   * @param index
+   *              The index of the element (see Elements).
+   * @param property
+   *              The property.
+   * @return true if the element has this property.
+   */
+  public boolean hasProperty(int index, Property property) {
+    return (properties[index] & (1 << property.ordinal())) != 0;
+  }
+
+  /**
+   * Check if an element has a rule, a property or a name.
+   *
+   * @param element
+   *              The element.
+   * @param rule
+   *              The property or the name.
+   * @return true if this rule exists.
+   *
+   * @see Element
+   * @see Rule
+   */
+  public boolean isRule(Element element, Rule rule) {
+    Objects.requireNonNull(rule);
+    var index = Elements.indexOf(element);
+    if(rule.getType() == Type.PROPERTY) {
+      return (properties[index] & (1 << rule.ordinal())) != 0;
+    }
+    return (names[index] & Elements.bit(rule)) != 0;
+  }
+
+  /**
+   * Get the properties of an element.
+   *
+   * @param index
+   *              The index of the element (see Elements).
+   * @return a mask with a bit by ordinal of Property.
+   */
+  public int properties(int index) {
+    return properties[index];
+  }
+
+  /**
+   * Get the names an element becomes (rules of type Name Operator Name).
+   *
+   * @param index
+   *              The index of the element (see Elements).
+   * @return a mask with a bit by element index of Name.
+   */
+  public long names(int index) {
+    return names[index];
+  }
+
+  /**
+   * Get the elements that have a property.
+   *
+   * @param property
+   *              The property.
+   * @return a mask with a bit by element index.
+   */
+  public long elementsWith(Property property) {
+    return elements[property.ordinal()];
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof RuleTable && Arrays.equals(properties, ((RuleTable) obj).properties) && Arrays.equals(names, ((RuleTable) obj).names);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(properties) * 31 + Arrays.hashCode(names);
+  }
+
+  /**
+   * Display the rules like "BABA IS YOU".
+   *
+   * @return a String with the rules of the items.
+   */
+  @Override
+  public String toString() {
+    var builder = new StringBuilder();
+    for(var i = 0; i < Elements.COUNT; i++) {
+      var element = Elements.get(i);
+      if(element.getType() != Type.ITEM) {
+        continue;
+      }
+      for(var property: Property.values()) {
+        if(hasProperty(i, property)) {
+          builder.append(element).append(" IS ").append(property).append('\n');
+        }
+      }
+      for(var name = names[i]; name != 0; name &= name - 1) {
+        builder.append(element).append(" IS ").append(((Name) Elements.get(Long.numberOfTrailingZeros(name))).getItem()).append('\n');
+      }
+    }
+    return builder.toString();
+  }
+}
@@ -1,17 +1,19 @@
 package fr.umlv.baba;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
-import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 
 /**
@@ -27,6 +29,7 @@ public class SaverLoader {
   static final String OPERATOR_TYPE = "O";
   static final String PROPERTY_TYPE = "P";
   static final String ITEM_TYPE = "I";
+  private static final int BUFFER_SIZE = 1 << 16;
   
   /**
    * toTextFormat make a String representation of an element and his coordinates to save it in a file with saveInTextFormat.
@@ -96,139 +99,159 @@ public class SaverLoader {
   }
   
   /**
-   * Parse a line with dimensions and create a board with them.
+   * Create a board from a level file.
    * 
-   * @param line
-   *              The line to parse.
+   * @param path 
+   *              The path of the level file.
    *              
-   * @return a board with the parsed dimensions
+   * @return a board.
+   * 
    * 
    * @see Board
-   * @see Integer
-   * @see String
+   * @see Path
+   * @see TextLevelFormat
+   * 
    */
-  private static Board parseFirstLine(String line) {
-    Objects.requireNonNull(line);
-    var tokens = line.split(SEPARATOR);
-    if(tokens.length != 2) {
-      throw new IllegalStateException("The dimensions of the level in the file are not correct (first line)");
-    }
-    var xMax = Integer.valueOf(tokens[0]);
-    var yMax = Integer.valueOf(tokens[1]);
-    if(xMax <= 0 || yMax <= 0) {
-      throw new IllegalArgumentException("xMax and yMax in the level file must be positive");
+  public static Board configureLevel(Path path){
+    try {
+      return loadLevel(path);
+    } catch(IOException e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+      return null;
     }
-    var board = new Board(xMax, yMax);
-    return board;
   }
   
   /**
-   * Parse a line with elements data and add it in a board.
-   * 
-   * @param board 
-   *              the board to refresh
-   * @param line
-   *              The line to parse.
-   * @param elementParseMap
-   *                      A function that creates an element with the type requested.
-   *              
-   * @return a board with the element parsed
+   * Load a board from a level file like configureLevel, an error of reading is given to the caller instead of stopping the program.
    * 
-   * @see Board
-   * @see Integer
-   * @see Map
-   * @see String
-   * @see Function
-   * @see Element
+   * @param path
+   *              The path of the level file.
+   * @return a board.
+   * 
+   * @throws IOException
+   *              If the file can't be read.
+   * 
+   * @see TextLevelFormat#load(Path)
    */
-  private static Board parseLine(Board board, String line, Map<String, Function<String[], Element>> elementParseMap) {
+  public static Board loadLevel(Path path) throws IOException {
+    return TextLevelFormat.load(path);
+  }
+  
+  /**
+   * Save a game in progress in a text file : the elements of the board with ranges and its current rules.
+   * 
+   * @param board
+   *              The board to save.
+   * @param path
+   *              The path of the file.
+   * 
+   * @throws IOException
+   *              If the file can't be written.
+   * 
+   * @see TextLevelFormat#writeSnapshot(Board, BufferedWriter)
+   * @see #loadSnapshot(Path)
+   */
+  public static void saveSnapshot(Board board, Path path) throws IOException {
     Objects.requireNonNull(board);
-    Objects.requireNonNull(line);
-    Objects.requireNonNull(elementParseMap);
-    var tokens = line.split(SEPARATOR);
-    if(tokens.length < 2) {
-      throw new IllegalStateException("Error in the level file (miss argument)");
+    Objects.requireNonNull(path);
+    try(var writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.US_ASCII), BUFFER_SIZE)) {
+      TextLevelFormat.writeSnapshot(board, writer);
     }
-    var type = tokens[0];
-    var function = elementParseMap.get(type);
-    var element = function.apply(tokens);
-    for(var i = 2; i < tokens.length; i++) {
-      var coord = Integer.valueOf(tokens[i]);
-      if(coord < 0) {
-        throw new IllegalArgumentException("Negatives coordinates are ot allowed in the level file");
+  }
+  
+  /**
+   * Save a game in progress in a compressed binary file : the state packed by StateCodec, compressed with gzip.
+   * 
+   * @param board
+   *              The board to save.
+   * @param path
+   *              The path of the file.
+   * 
+   * @throws IOException
+   *              If the file can't be written.
+   * 
+   * @see StateCodec
+   * @see #loadSnapshot(Path)
+   */
+  public static void saveCompressedSnapshot(Board board, Path path) throws IOException {
+    Objects.requireNonNull(board);
+    Objects.requireNonNull(path);
+    var bytes = StateCodec.encode(board).toByteArray();
+    // the default level of compression is ten times slower on packed states for a file 10% smaller
+    try(var output = new GZIPOutputStream(Files.newOutputStream(path), BUFFER_SIZE) {
+      {
+        def.setLevel(Deflater.BEST_SPEED);
       }
-      board.add(element, coord);
+    }) {
+      output.write(bytes);
     }
-    return board;
   }
   
   /**
-   * Load a Board from a level file.
+   * Load a game saved by saveSnapshot or saveCompressedSnapshot, the format is found from the first bytes of the file.
+   * The board has the rules it had when it was saved, its journal is empty.
    * 
-   * @param reader 
-   *              that reader take the file line by line
-   * @param elementParseMap
-   *                      A function that creates an element with the type requested.
-   *              
-   * @return a board.
+   * @param path
+   *              The path of the file.
+   * @return the board.
    * 
    * @throws IOException
+   *              If the file can't be read.
    * 
-   * @see Board
-   * @see BufferedReader
-   * @see Map
-   * @see String
-   * @see Function
-   * @see Element
-   * 
+   * @see #saveSnapshot(Board, Path)
+   * @see #saveCompressedSnapshot(Board, Path)
    */
-  private static Board loadFromTextFormat(BufferedReader reader, Map<String, Function<String[], Element>> elementParseMap) throws IOException {
-    Objects.requireNonNull(reader);
-    Objects.requireNonNull(elementParseMap);
-    var line = reader.readLine();
-    Board board;
-    if(line != null) {
-      board = parseFirstLine(line);
-    }
-    else {
-      return null;
-    }
-    for(line = reader.readLine(); line != null; line = reader.readLine()) {
-      board = parseLine(board, line, elementParseMap);;
+  public static Board loadSnapshot(Path path) throws IOException {
+    Objects.requireNonNull(path);
+    try(var input = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+      input.mark(2);
+      var magic = input.read() | input.read() << 8;
+      input.reset();
+      if(magic == GZIPInputStream.GZIP_MAGIC) {
+        try(var gzip = new GZIPInputStream(input, BUFFER_SIZE)) {
+          return StateCodec.decode(PackedState.fromByteArray(gzip.readAllBytes()));
+        }
+      }
     }
-    return board;
+    return TextLevelFormat.load(path);
   }
   
-  
   /**
-   * Create a board from a level file.
+   * Open a level pack : only its index is read, the levels are loaded on demand and the last ones are kept in a cache.
    * 
-   * @param path 
-   *              The path of the level file.
-   *              
-   * @return a board.
+   * @param path
+   *              The path of the pack.
+   * @return the pack, to close after use.
    * 
+   * @throws IOException
+   *              If the pack can't be read.
    * 
-   * @see Board
-   * @see Path
+   * @see LevelPack
+   */
+  public static LevelPack openPack(Path path) throws IOException {
+    return LevelPack.open(path);
+  }
+  
+  /**
+   * Give the letter of the type of an element in a level file.
    * 
+   * @param element
+   *              The element.
+   * @return N, O, P or I.
+   * 
+   * @see Type
    */
-  public static Board configureLevel(Path path){
-    Map<String, Function<String[], Element>> elementParserMap = Map.of(
-        NAME_TYPE, parts -> Name.valueOf(parts[1]),
-        OPERATOR_TYPE, parts -> Operator.valueOf(parts[1]),
-        PROPERTY_TYPE, parts -> Property.valueOf(parts[1]),
-        ITEM_TYPE, parts -> Item.valueOf(parts[1])
-        );
-    Board board;
-    try(BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-    board = SaverLoader.loadFromTextFormat(reader, elementParserMap);
-    } catch(IOException e) {
-    System.err.println(e.getMessage());
-    System.exit(1);
-    return null;
+  static String typeCode(Element element) {
+    switch(element.getType()) {
+      case NAME:
+        return NAME_TYPE;
+      case OPERATOR:
+        return OPERATOR_TYPE;
+      case PROPERTY:
+        return PROPERTY_TYPE;
+      default:
+        return ITEM_TYPE;
     }
-    board.initRules();
-    return board;
   }
 }
@@ -0,0 +1,201 @@
+package fr.umlv.baba;
+
+import java.util.Objects;
+
+
+/**
+ * StateCodec packs the state of a Board in a few longs, and builds a Board back from them.
+ * The first long keeps the size of the board and if its rules were waiting for a refresh, the second one the rules (see RuleTable.pack).
+ * Then the squares follow as bits, in the order of their coordinates : an empty square is a 0, a square with elements is a 1
+ * followed by an entry by element, in the order of their index. An entry is the index of the element (see Elements)
+ * and a bit telling if another element follows in the square.
+ * A board of 8x7 squares with 30 elements fits in 6 longs (48 bytes).
+ *
+ * @see PackedState
+ * @see Board
+ */
+public final class StateCodec {
+  private static final int HEADER = 2;
+  private static final int INDEX_BITS = Long.SIZE - Long.numberOfLeadingZeros(Elements.COUNT - 1);
+  private static final int ENTRY_BITS = INDEX_BITS + 1;
+  private static final int SIZE_SHIFT = 32;
+
+  private StateCodec() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Pack the state of a board : its size, its elements and its rules. The journal of the board is not packed.
+   *
+   * @param board
+   *              The board.
+   * @return the packed state.
+   *
+   * @see PackedState
+   */
+  public static PackedState encode(Board board) {
+    Objects.requireNonNull(board);
+    var size = board.getXMax() * board.getYMax();
+    var bits = (long) size;
+    for(var coord = 0; coord < size; coord++) {
+      bits += Long.bitCount(board.occupants(coord)) * ENTRY_BITS;
+    }
+    var data = new long[HEADER + (int) ((bits + Long.SIZE - 1) / Long.SIZE)];
+    data[0] = (long) board.getXMax() << SIZE_SHIFT | (long) board.getYMax() << 1 | (board.rulesPending() ? 1 : 0);
+    data[1] = board.getRules().pack();
+    var position = (long) HEADER * Long.SIZE;
+    for(var coord = 0; coord < size; coord++) {
+      var occupants = board.occupants(coord);
+      if(occupants == 0) {
+        position++;
+        continue;
+      }
+      position = write(data, position, 1, 1);
+      for(var mask = occupants; mask != 0; mask &= mask - 1) {
+        var more = (mask & (mask - 1)) != 0 ? 1 : 0;
+        position = write(data, position, (long) Long.numberOfTrailingZeros(mask) << 1 | more, ENTRY_BITS);
+      }
+    }
+    return new PackedState(data);
+  }
+
+  /**
+   * Build a board from a packed state. The new board has the elements and the rules of the state,
+   * its items are not transformed again and its journal is empty.
+   *
+   * @param state
+   *              The packed state.
+   * @return a new Board.
+   *
+   * @see PackedState
+   */
+  public static Board decode(PackedState state) {
+    Objects.requireNonNull(state);
+    var data = state.data();
+    var board = new Board(xMax(data), yMax(data));
+    var size = xMax(data) * yMax(data);
+    var positions = new CoordSet[Elements.COUNT];
+    var position = (long) HEADER * Long.SIZE;
+    for(var coord = 0; coord < size; coord++) {
+      var occupied = read(data, position, 1) != 0;
+      position++;
+      for(var more = occupied; more;) {
+        var entry = read(data, position, ENTRY_BITS);
+        position += ENTRY_BITS;
+        var index = (int) (entry >>> 1);
+        if(positions[index] == null) {
+          positions[index] = new CoordSet(size);
+        }
+        positions[index].add(coord);
+        more = (entry & 1) != 0;
+      }
+    }
+    for(var i = 0; i < positions.length; i++) {
+      if(positions[i] != null) {
+        board.addAll(Elements.get(i), positions[i]);
+      }
+    }
+    board.restoreRules(RuleTable.unpack(data[1]), (data[0] & 1) != 0);
+    return board;
+  }
+
+  /**
+   * Check that longs are a state packed by encode, the elements of each square in the order of their index and no bit left.
+   * @param data
+   *              The longs.
+   */
+  static void check(long[] data) {
+    if(data.length < HEADER || xMax(data) < 0 || yMax(data) < 0 || (long) xMax(data) * yMax(data) > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The bytes are not a packed state");
+    }
+    RuleTable.unpack(data[1]);
+    var size = xMax(data) * yMax(data);
+    var end = (long) data.length * Long.SIZE;
+    var position = (long) HEADER * Long.SIZE;
+    for(var coord = 0; coord < size; coord++) {
+      if(position >= end) {
+        throw new IllegalArgumentException("The packed state is truncated");
+      }
+      var occupied = read(data, position, 1) != 0;
+      position++;
+      for(int more = occupied ? 1 : 0, previous = -1; more != 0;) {
+        if(position + ENTRY_BITS > end) {
+          throw new IllegalArgumentException("The packed state is truncated");
+        }
+        var entry = read(data, position, ENTRY_BITS);
+        position += ENTRY_BITS;
+        var index = (int) (entry >>> 1);
+        if(index >= Elements.COUNT || index <= previous) {
+          throw new IllegalArgumentException("Unknown element index " + index + " in the packed state");
+        }
+        previous = index;
+        more = (int) (entry & 1);
+      }
+    }
+    if((end - position) >= Long.SIZE || (position < end && read(data, position, (int) (end - position)) != 0)) {
+      throw new IllegalArgumentException("The packed state has bits after its squares");
+    }
+  }
+
+  /**
+   * Give the number of squares in a range of a packed state.
+   * @param data
+   *              The packed state.
+   * @return xMax.
+   */
+  static int xMax(long[] data) {
+    return (int) (data[0] >>> SIZE_SHIFT);
+  }
+
+  /**
+   * Give the number of squares in a column of a packed state.
+   * @param data
+   *              The packed state.
+   * @return yMax.
+   */
+  static int yMax(long[] data) {
+    return (int) (data[0] & 0xFFFF_FFFFL) >>> 1;
+  }
+
+  /**
+   * Write the lowest bits of a value at a bit position.
+   * @param data
+   *              The longs, the bits at the position are 0.
+   * @param position
+   *              The position of the first bit.
+   * @param value
+   *              The value, only its lowest bits are set.
+   * @param width
+   *              The number of bits, at most 63.
+   * @return the position after the written bits.
+   */
+  private static long write(long[] data, long position, long value, int width) {
+    var index = (int) (position >>> 6);
+    var offset = (int) (position & 63);
+    data[index] |= value << offset;
+    if(offset + width > Long.SIZE) {
+      data[index + 1] |= value >>> (Long.SIZE - offset);
+    }
+    return position + width;
+  }
+
+  /**
+   * Read some bits at a bit position.
+   * @param data
+   *              The longs.
+   * @param position
+   *              The position of the first bit.
+   * @param width
+   *              The number of bits, at most 63.
+   * @return the value of the bits.
+   */
+  private static long read(long[] data, long position, int width) {
+    var index = (int) (position >>> 6);
+    var offset = (int) (position & 63);
+    var value = data[index] >>> offset;
+    if(offset + width > Long.SIZE) {
+      value |= data[index + 1] << (Long.SIZE - offset);
+    }
+    return value & ((1L << width) - 1);
+  }
+}
@@ -0,0 +1,487 @@
+package fr.umlv.baba;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+
+/**
+ * TextLevelFormat reads the text format of SaverLoader byte by byte, without splitting the lines or boxing the coordinates.
+ * The first line is "xMax#yMax", then each line is the letter of a type, the name of an element and its coordinates,
+ * like "I#WALL#275#276#277". A coordinate can also be a range :
+ * "275-285" is the squares from 275 to 285 (included), and "308..318x3" is the rectangle whose first range goes
+ * from 308 to 318 and which is 3 ranges high. The files without ranges are read as before.
+ * A snapshot of a game in progress ends with the line "R#rules#pending" : the rules of the board packed by RuleTable.pack
+ * in hexadecimal, and 1 if they were waiting for a refresh. Its rules are restored instead of being read on the board.
+ * The coordinates of each element are gathered in a CoordSet and added to the board in one call.
+ *
+ * @see SaverLoader
+ * @see CoordSet
+ */
+public final class TextLevelFormat {
+  private static final byte[][] NAMES = new byte[Elements.COUNT][];
+  private static final byte[] TYPES = new byte[Elements.COUNT];
+  private static final byte SEPARATOR = '#';
+  private static final byte RUN = '-';
+  private static final byte RECTANGLE = '.';
+  private static final byte HEIGHT = 'x';
+  private static final byte RULES = 'R';
+  private static final int CHUNK = 8192;
+  private static final long MAP_THRESHOLD = 64 * 1024;
+
+  static {
+    for(var i = 0; i < Elements.COUNT; i++) {
+      var element = Elements.get(i);
+      NAMES[i] = element.toString().getBytes(StandardCharsets.US_ASCII);
+      TYPES[i] = (byte) SaverLoader.typeCode(element).charAt(0);
+    }
+  }
+
+  private final ByteBuffer buffer;
+  private final int limit;
+  private int position;
+  private int line = 1;
+  private RuleTable restored;
+  private boolean pending;
+
+  private TextLevelFormat(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.limit = buffer.limit();
+    this.position = buffer.position();
+  }
+
+  /**
+   * Load a board from a level file. The rules of the board are initialized like with SaverLoader.configureLevel.
+   * A file under 64 KiB is read in an array, a mapping costs more than the copy for so few bytes ; a larger file is mapped in memory.
+   *
+   * @param path
+   *              The path of the file.
+   * @return the board.
+   * @throws IOException
+   *              If the file can't be read.
+   */
+  public static Board load(Path path) throws IOException {
+    Objects.requireNonNull(path);
+    if(Files.size(path) < MAP_THRESHOLD) {
+      return parse(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+    ByteBuffer buffer;
+    try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    return parse(buffer);
+  }
+
+  /**
+   * Read a board from the bytes of a level, from the position to the limit of the buffer. The position of the buffer is not changed.
+   *
+   * @param buffer
+   *              The bytes of the level, in ASCII.
+   * @return the board, with its rules initialized or restored.
+   */
+  public static Board parse(ByteBuffer buffer) {
+    Objects.requireNonNull(buffer);
+    return new TextLevelFormat(buffer).read();
+  }
+
+  /**
+   * Read a board from the characters of a level, the characters are encoded in ASCII once before being read.
+   *
+   * @param text
+   *              The level.
+   * @return the board, with its rules initialized or restored.
+   */
+  public static Board parse(CharSequence text) {
+    Objects.requireNonNull(text);
+    return parse(StandardCharsets.US_ASCII.encode(CharBuffer.wrap(text)));
+  }
+
+  /**
+   * Read the whole level.
+   * @return the board.
+   */
+  private Board read() {
+    var xMax = this.number();
+    this.expect(SEPARATOR);
+    var yMax = this.number();
+    this.endOfLine();
+    if(xMax <= 0 || yMax <= 0) {
+      throw new IllegalArgumentException("xMax and yMax in the level file must be positive");
+    }
+    if((long) xMax * yMax > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The level has too many squares");
+    }
+    var size = xMax * yMax;
+    var positions = new CoordSet[Elements.COUNT];
+    while(position < limit) {
+      if(this.skipEmptyLine()) {
+        continue;
+      }
+      if(buffer.get(position) == RULES) {
+        this.rules();
+        this.endOfLine();
+        continue;
+      }
+      var index = this.element();
+      if(positions[index] == null) {
+        positions[index] = new CoordSet(size);
+      }
+      var coords = positions[index];
+      while(position < limit && buffer.get(position) == SEPARATOR) {
+        position++;
+        if(position == limit || this.isEndOfLine(buffer.get(position))) {
+          break; // a separator at the end of the line is ignored, like the old parser did
+        }
+        this.coordinates(coords, xMax);
+      }
+      this.endOfLine();
+    }
+    var board = new Board(xMax, yMax);
+    for(var i = 0; i < positions.length; i++) {
+      if(positions[i] != null && !positions[i].isEmpty()) {
+        board.addAll(Elements.get(i), positions[i]);
+      }
+    }
+    if(restored != null) {
+      board.restoreRules(restored, pending);
+    }
+    else {
+      board.initRules();
+    }
+    return board;
+  }
+
+  /**
+   * Read the rules of a snapshot, "R#rules#pending".
+   *
+   * @see RuleTable#unpack(long)
+   */
+  private void rules() {
+    if(restored != null) {
+      throw this.error("The rules are given twice");
+    }
+    this.expect(RULES);
+    this.expect(SEPARATOR);
+    var start = position;
+    var packed = 0L;
+    for(; position < limit && Character.digit(buffer.get(position), 16) != -1; position++) {
+      if(position - start == Long.SIZE / 4) {
+        throw this.error("The rules are too long");
+      }
+      packed = packed << 4 | Character.digit(buffer.get(position), 16);
+    }
+    if(position == start) {
+      throw this.error("The rules are missing");
+    }
+    this.expect(SEPARATOR);
+    var flag = this.number();
+    if(flag > 1) {
+      throw this.error("The refresh of the rules is 0 or 1");
+    }
+    try {
+      restored = RuleTable.unpack(packed);
+    } catch(IllegalArgumentException e) {
+      throw this.error(e.getMessage());
+    }
+    pending = flag == 1;
+  }
+
+  /**
+   * Read the type and the name of an element at the start of a line.
+   * @return the index of the element.
+   *
+   * @see Elements
+   */
+  private int element() {
+    var type = buffer.get(position);
+    this.expect(type);
+    this.expect(SEPARATOR);
+    var start = position;
+    while(position < limit && buffer.get(position) != SEPARATOR && !this.isEndOfLine(buffer.get(position))) {
+      position++;
+    }
+    for(var i = 0; i < Elements.COUNT; i++) {
+      if(TYPES[i] == type && this.matches(NAMES[i], start, position)) {
+        return i;
+      }
+    }
+    throw this.error("Unknown element");
+  }
+
+  /**
+   * Check if some bytes of the buffer are a name.
+   * @param name
+   *              The name, in ASCII.
+   * @param start
+   *              The first byte (included).
+   * @param end
+   *              The last byte (excluded).
+   * @return true if the bytes are the name.
+   */
+  private boolean matches(byte[] name, int start, int end) {
+    if(end - start != name.length) {
+      return false;
+    }
+    for(var i = 0; i < name.length; i++) {
+      if(buffer.get(start + i) != name[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Read a coordinate, a run "from-to" or a rectangle "from..toxheight", and add its squares to a set.
+   * @param coords
+   *              The coordinates of the element.
+   * @param xMax
+   *              The number of squares in a range.
+   */
+  private void coordinates(CoordSet coords, int xMax) {
+    var from = this.number();
+    if(position == limit || (buffer.get(position) != RUN && buffer.get(position) != RECTANGLE)) {
+      if(from >= coords.capacity()) {
+        throw this.error("The coordinates are out of the board");
+      }
+      coords.add(from);
+      return;
+    }
+    if(buffer.get(position) == RUN) {
+      position++;
+      var to = this.number();
+      if(to < from || to >= coords.capacity()) {
+        throw this.error("The run " + from + "-" + to + " is not in the board");
+      }
+      coords.addRange(from, to + 1);
+      return;
+    }
+    position++;
+    this.expect(RECTANGLE);
+    var to = this.number();
+    var height = 1;
+    if(position < limit && buffer.get(position) == HEIGHT) {
+      position++;
+      height = this.number();
+    }
+    if(to < from || from / xMax != to / xMax || height <= 0 || from / xMax + height > coords.capacity() / xMax) {
+      throw this.error("The rectangle " + from + ".." + to + "x" + height + " is not in the board");
+    }
+    for(var y = 0; y < height; y++) {
+      coords.addRange(from + y * xMax, to + 1 + y * xMax);
+    }
+  }
+
+  /**
+   * Read a positive number.
+   * @return the number.
+   */
+  private int number() {
+    var start = position;
+    var value = 0L;
+    while(position < limit) {
+      var digit = buffer.get(position) - '0';
+      if(digit < 0 || digit > 9) {
+        break;
+      }
+      value = value * 10 + digit;
+      if(value > Integer.MAX_VALUE) {
+        throw this.error("The number is too big");
+      }
+      position++;
+    }
+    if(position == start) {
+      throw this.error(position < limit && buffer.get(position) == RUN ? "Negatives coordinates are not allowed" : "A number is missing");
+    }
+    return (int) value;
+  }
+
+  /**
+   * Read an expected byte.
+   * @param expected
+   *              The byte.
+   */
+  private void expect(byte expected) {
+    if(position == limit || buffer.get(position) != expected) {
+      throw this.error("'" + (char) expected + "' is missing");
+    }
+    position++;
+  }
+
+  /**
+   * Skip a line without any character.
+   * @return true if a line was skipped.
+   */
+  private boolean skipEmptyLine() {
+    if(buffer.get(position) == '\r' && position + 1 < limit && buffer.get(position + 1) == '\n') {
+      position++;
+    }
+    if(buffer.get(position) == '\n') {
+      position++;
+      line++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Read the end of a line, or of the file.
+   */
+  private void endOfLine() {
+    if(position < limit && buffer.get(position) == '\r') {
+      position++;
+    }
+    if(position < limit) {
+      if(buffer.get(position) != '\n') {
+        throw this.error("Unexpected character '" + (char) buffer.get(position) + "'");
+      }
+      position++;
+      line++;
+    }
+  }
+
+  /**
+   * Check if a byte ends a line.
+   * @param b
+   *              The byte.
+   * @return true for '\n' and '\r'.
+   */
+  private boolean isEndOfLine(byte b) {
+    return b == '\n' || b == '\r';
+  }
+
+  /**
+   * Create the exception of an error in the level.
+   * @param message
+   *              The error.
+   * @return the exception, with the line of the error.
+   */
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(message + " in the level file (line " + line + ")");
+  }
+
+  /**
+   * Save the elements of a board in a level file with ranges.
+   *
+   * @param board
+   *              The board.
+   * @param path
+   *              The path of the file.
+   * @throws IOException
+   *              If the file can't be written.
+   */
+  public static void save(Board board, Path path) throws IOException {
+    Objects.requireNonNull(board);
+    Objects.requireNonNull(path);
+    try(var writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+      write(board, writer);
+    }
+  }
+
+  /**
+   * Write the elements of a board, an element by line. The squares of an element are gathered in rectangles from the top left :
+   * a rectangle is as wide as the run of squares in its first range, and goes down while the next range has the same run.
+   * A single square is written alone, a rectangle of one range as a run. A line is built by chunks before being written.
+   *
+   * @param board
+   *              The board.
+   * @param writer
+   *              The writer, it is not closed.
+   * @throws IOException
+   *              If the writer fails.
+   */
+  public static void write(Board board, BufferedWriter writer) throws IOException {
+    Objects.requireNonNull(board);
+    Objects.requireNonNull(writer);
+    var xMax = board.getXMax();
+    var builder = new StringBuilder(CHUNK + 64);
+    writer.write(xMax + SaverLoader.SEPARATOR + board.getYMax());
+    writer.newLine();
+    for(var i = 0; i < Elements.COUNT; i++) {
+      var element = Elements.get(i);
+      var positions = board.positions(element);
+      if(positions == null || positions.isEmpty()) {
+        continue;
+      }
+      builder.setLength(0);
+      builder.append(SaverLoader.typeCode(element)).append(SaverLoader.SEPARATOR).append(element);
+      var left = new CoordSet(positions);
+      for(var from = left.next(0); from != -1; from = left.next(from + 1)) {
+        var rangeEnd = from - from % xMax + xMax;
+        var end = from + 1;
+        while(end < rangeEnd && left.contains(end)) {
+          end++;
+        }
+        var height = 1;
+        while(full(left, from + height * xMax, end + height * xMax)) {
+          height++;
+        }
+        for(var y = 0; y < height; y++) {
+          for(var coord = from + y * xMax; coord < end + y * xMax; coord++) {
+            left.remove(coord);
+          }
+        }
+        builder.append((char) SEPARATOR).append(from);
+        if(height > 1) {
+          builder.append((char) RECTANGLE).append((char) RECTANGLE).append(end - 1).append((char) HEIGHT).append(height);
+        }
+        else if(end - from > 1) {
+          builder.append((char) RUN).append(end - 1);
+        }
+        if(builder.length() >= CHUNK) {
+          writer.append(builder);
+          builder.setLength(0);
+        }
+      }
+      writer.append(builder);
+      writer.newLine();
+    }
+  }
+
+  /**
+   * Write a snapshot of a board : its elements like write, then its rules. Loaded back, the board has the same elements,
+   * the same rules and is waiting for a refresh like this one, its items are not transformed again.
+   *
+   * @param board
+   *              The board.
+   * @param writer
+   *              The writer, it is not closed.
+   * @throws IOException
+   *              If the writer fails.
+   *
+   * @see #write(Board, BufferedWriter)
+   */
+  public static void writeSnapshot(Board board, BufferedWriter writer) throws IOException {
+    write(board, writer);
+    writer.write((char) RULES + SaverLoader.SEPARATOR + Long.toHexString(board.getRules().pack()) + SaverLoader.SEPARATOR + (board.rulesPending() ? 1 : 0));
+    writer.newLine();
+  }
+
+  /**
+   * Check if all the coordinates between two coordinates are in a set.
+   * @param coords
+   *              The set.
+   * @param from
+   *              The first coordinate (included).
+   * @param to
+   *              The last coordinate (excluded).
+   * @return true if the set has all of them, false if one is missing or out of the board.
+   */
+  private static boolean full(CoordSet coords, int from, int to) {
+    if(to > coords.capacity()) {
+      return false;
+    }
+    for(var coord = from; coord < to; coord++) {
+      if(!coords.contains(coord)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -1,4 +1,4 @@
-package fr.umlv.baba;
+package fr.umlv.baba.display;
 
 import java.awt.Graphics2D;
 import java.awt.Image;
@@ -6,8 +6,12 @@ import java.util.Objects;
 
 import javax.swing.ImageIcon;
 
+import fr.umlv.baba.Board;
+import fr.umlv.baba.Element;
+
 /**
  * BoardDisplay contains the functions of element displaying and of image loading.
+ * It is the only part of the game that depends on java.awt, the Board and the rules don't know how they are drawn.
  *
  */
 public class BoardDisplay {
@@ -83,7 +87,25 @@ public class BoardDisplay {
       throw new IllegalArgumentException("The coordinates (x, y) are out of the board");
     }
     var size = size();
-    element.getImageIcon().paintIcon(null, graphics2D, x * size + (int) (BoardDisplay.width - BoardDisplay.xMax * size) / 2, y * size + (int) (BoardDisplay.height - BoardDisplay.yMax * size) / 2); 
+    Sprites.get(element).paintIcon(null, graphics2D, x * size + (int) (BoardDisplay.width - BoardDisplay.xMax * size) / 2, y * size + (int) (BoardDisplay.height - BoardDisplay.yMax * size) / 2); 
+  }
+  
+  /**
+   * Display the board with zen5.
+   * 
+   * @param board
+   *                The board to display.
+   * @param graphics2D
+   *                the graphics animation of zen5.
+   *
+   * @see Board
+   * @see Graphics2D
+   */
+  public static void displayBoard(Board board, Graphics2D graphics2D) {
+    Objects.requireNonNull(board);
+    Objects.requireNonNull(graphics2D);
+    var xMax = board.getXMax();
+    board.forEachElement((element, coord) -> displayElement(element, graphics2D, coord % xMax, coord / xMax));
   }
   
   /**
@@ -0,0 +1,70 @@
+package fr.umlv.baba.display;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.swing.ImageIcon;
+
+import fr.umlv.baba.Element;
+import fr.umlv.baba.Elements;
+import fr.umlv.baba.Name;
+import fr.umlv.baba.Type;
+
+
+/**
+ * Sprites associates each element to its image, by index of element (see Elements).
+ * The images are loaded the first time they are displayed, at the size of the squares of BoardDisplay.
+ * When the size of the squares changes (a level with other dimensions), the images are loaded again at the new size.
+ *
+ * @see Elements
+ * @see BoardDisplay
+ */
+final class Sprites {
+  private static final ImageIcon[] ICONS = new ImageIcon[Elements.COUNT];
+  private static int iconSize;
+
+  private Sprites() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Give the path of the image of an element. An item uses "ressources/BABA/BABA_0.gif",
+   * a word uses the image of its text, like "ressources/BABA/Text_BABA_0.gif" for the name TBABA.
+   * @param element
+   *              The element.
+   * @return the path of the image.
+   *
+   * @see Element
+   */
+  static String path(Element element) {
+    Objects.requireNonNull(element);
+    if(element.getType() == Type.ITEM) {
+      return "ressources/" + element + "/" + element + "_0.gif";
+    }
+    var text = element.getType() == Type.NAME ? ((Name) element).getItem().toString() : element.toString();
+    return "ressources/" + text + "/Text_" + text + "_0.gif";
+  }
+
+  /**
+   * Get the image of an element, it is loaded the first time and each time the size of the squares changes.
+   * @param element
+   *              The element.
+   * @return the ImageIcon of the element.
+   *
+   * @see ImageIcon
+   */
+  static ImageIcon get(Element element) {
+    var size = BoardDisplay.size();
+    if(size != iconSize) {
+      Arrays.fill(ICONS, null);
+      iconSize = size;
+    }
+    var index = Elements.indexOf(element);
+    var icon = ICONS[index];
+    if(icon == null) {
+      icon = BoardDisplay.loadImage(path(element));
+      ICONS[index] = icon;
+    }
+    return icon;
+  }
+}
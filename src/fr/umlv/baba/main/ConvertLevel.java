@@ -0,0 +1,18 @@
+package fr.umlv.baba.main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import fr.umlv.baba.BinaryLevelFormat;
+
+public class ConvertLevel {
+  
+  public static void main(String[] args) throws IOException {
+    if(args.length != 2) {
+      System.err.println("usage : ConvertLevel level.txt level.baba");
+      System.exit(2);
+      return;
+    }
+    BinaryLevelFormat.convert(Path.of(args[0]), Path.of(args[1]));
+  }
+}
@@ -0,0 +1,37 @@
+package fr.umlv.baba.main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+import fr.umlv.baba.LevelGenerator;
+
+public class Generate {
+  
+  public static void main(String[] args) throws IOException {
+    if(args.length < 2) {
+      System.err.println("usage : Generate level.txt XxY [seed=0] [density=0.1] [sentences=4] [you=1] [chains=0] [chain=0] [invalid]");
+      System.exit(2);
+      return;
+    }
+    var size = args[1].split("x");
+    if(size.length != 2) {
+      throw new IllegalArgumentException("The size is like 2000x2000");
+    }
+    var options = new HashMap<String, String>();
+    for(var i = 2; i < args.length; i++) {
+      var option = args[i].split("=", 2);
+      options.put(option[0], option.length == 2 ? option[1] : "");
+    }
+    var chains = Integer.parseInt(options.getOrDefault("chains", "0"));
+    var generator = new LevelGenerator(Integer.parseInt(size[0]), Integer.parseInt(size[1]), Long.parseLong(options.getOrDefault("seed", "0")))
+        .setDensity(Double.parseDouble(options.getOrDefault("density", "0.1")))
+        .setSentences(Integer.parseInt(options.getOrDefault("sentences", "4")))
+        .setYouTiles(Long.parseLong(options.getOrDefault("you", "1")))
+        .setChains(chains, Integer.parseInt(options.getOrDefault("chain", "0")))
+        .setValid(!options.containsKey("invalid"));
+    var start = System.nanoTime();
+    var written = generator.write(Path.of(args[0]));
+    System.out.println(written + " elements written in " + args[0] + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+  }
+}
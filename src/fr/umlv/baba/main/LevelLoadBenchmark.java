@@ -0,0 +1,122 @@
+package fr.umlv.baba.main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+import fr.umlv.baba.BinaryLevelFormat;
+import fr.umlv.baba.Board;
+import fr.umlv.baba.LevelGenerator;
+import fr.umlv.baba.SaverLoader;
+import fr.umlv.baba.StateCodec;
+import fr.umlv.baba.TextLevelFormat;
+
+public class LevelLoadBenchmark {
+  private static final int RUNS = 5;
+  
+  /**
+   * Load a level several times and keep the fastest load.
+   * @param loader
+   *              The loader.
+   * @return the best time, in nanoseconds.
+   * @throws Exception
+   *              If the loader fails.
+   */
+  private static long best(Callable<Board> loader) throws Exception {
+    var best = Long.MAX_VALUE;
+    for(var run = 0; run < RUNS; run++) {
+      var start = System.nanoTime();
+      loader.call();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return best;
+  }
+  
+  /**
+   * Compare the loading of a level in the text format, in the text format with ranges and in the binary format,
+   * and check that the three give the same board.
+   * @param name
+   *              The name of the level.
+   * @param text
+   *              The path of the text level.
+   * @throws Exception
+   *              If a level can't be read or written.
+   */
+  private static void compare(String name, Path text) throws Exception {
+    var ranges = Files.createTempFile("baba-", ".txt");
+    var binary = Files.createTempFile("baba-", ".baba");
+    try {
+      var board = SaverLoader.configureLevel(text);
+      TextLevelFormat.save(board, ranges);
+      BinaryLevelFormat.save(board, binary);
+      var state = StateCodec.encode(board);
+      var same = state.equals(StateCodec.encode(TextLevelFormat.load(ranges))) && state.equals(StateCodec.encode(BinaryLevelFormat.load(binary)));
+      var textTime = best(() -> SaverLoader.configureLevel(text));
+      var rangesTime = best(() -> TextLevelFormat.load(ranges));
+      var binaryTime = best(() -> BinaryLevelFormat.load(binary));
+      System.out.printf("%-12s text %9d KiB %8.1f ms   ranges %9d KiB %8.1f ms   binary %9d KiB %8.1f ms  %s%n", name,
+          Files.size(text) / 1024, textTime / 1e6, Files.size(ranges) / 1024, rangesTime / 1e6, Files.size(binary) / 1024, binaryTime / 1e6,
+          same ? "same board" : "DIFFERENT BOARDS");
+    } finally {
+      Files.deleteIfExists(ranges);
+      Files.deleteIfExists(binary);
+    }
+  }
+  
+  /**
+   * Write a level of rooms like an editor does, a coordinate at a time : walls around the level and between the rooms,
+   * a door in each wall, a floor of tiles and a BABA in the first room.
+   * @param path
+   *              The path of the level.
+   * @param size
+   *              The number of squares of a range and of a column.
+   * @param room
+   *              The number of squares between two walls.
+   * @throws IOException
+   *              If the level can't be written.
+   */
+  private static void writeRooms(Path path, int size, int room) throws IOException {
+    try(var writer = Files.newBufferedWriter(path)) {
+      writer.write(size + "#" + size);
+      writer.newLine();
+      var walls = new StringBuilder("I#WALL");
+      var tiles = new StringBuilder("I#TILE");
+      for(var y = 0; y < size; y++) {
+        for(var x = 0; x < size; x++) {
+          var wall = x % room == 0 || y % room == 0 || x == size - 1 || y == size - 1;
+          var door = (x % room == room / 2 || y % room == room / 2) && x != 0 && y != 0 && x != size - 1 && y != size - 1;
+          (wall && !door ? walls : tiles).append('#').append(y * size + x);
+        }
+      }
+      writer.write(walls.toString());
+      writer.newLine();
+      writer.write(tiles.toString());
+      writer.newLine();
+      writer.write("I#BABA#" + (size + 1));
+      writer.newLine();
+      writer.write("N#TBABA#0");
+      writer.newLine();
+      writer.write("O#IS#1");
+      writer.newLine();
+      writer.write("P#YOU#2");
+      writer.newLine();
+    }
+  }
+  
+  public static void main(String[] args) throws Exception {
+    System.out.println("best of " + RUNS + " loads");
+    compare("level_0", Path.of("./levels/level_0.txt"));
+    for(var size: new int[] { 200, 1000, 2000, 4000 }) {
+      var text = Files.createTempFile("baba-", ".txt");
+      try {
+        new LevelGenerator(size, size, size).setDensity(0.3).setSentences(size / 10).setYouTiles(size).setChains(size / 100, size / 2).write(text);
+        compare(size + "x" + size, text);
+        writeRooms(text, size, 16);
+        compare("rooms " + size, text);
+      } finally {
+        Files.deleteIfExists(text);
+      }
+    }
+  }
+}
@@ -2,40 +2,127 @@ package fr.umlv.baba.main;
 
 import java.awt.Color;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
-import fr.umlv.baba.BoardDisplay;
+import fr.umlv.baba.Board;
+import fr.umlv.baba.Campaign;
+import fr.umlv.baba.Direction;
+import fr.umlv.baba.Recording;
 import fr.umlv.baba.SaverLoader;
+import fr.umlv.baba.display.BoardDisplay;
 import fr.umlv.zen5.Application;
+import fr.umlv.zen5.ApplicationContext;
 import fr.umlv.zen5.Event;
 import fr.umlv.zen5.Event.Action;
 import fr.umlv.zen5.ScreenInfo; 
 
 public class Main {
   
-  public static void main(String[] args) {
+  /**
+   * Save the moves of the session in the recordings directory, to play them again with Replay.
+   * @param recording
+   *              The moves of the session, null if the level doesn't come from a level file.
+   * @param board
+   *              The board in its final state.
+   */
+  private static void save(Recording recording, Board board) {
+    if(recording == null) {
+      return;
+    }
+    recording.finish(board);
+    var name = recording.getLevel().getFileName().toString().replace(".txt", "");
+    var path = Path.of("./recordings", name + "-" + System.currentTimeMillis() + ".rec");
+    try {
+      Files.createDirectories(path.getParent());
+      recording.save(path);
+      System.out.println("Session recorded in " + path);
+    } catch (IOException e) {
+      System.err.println(e.getMessage());
+    }
+  }
+  
+  /**
+   * Create the campaign asked on the command line : a level, or "campaign" followed by a level pack, a directory or levels.
+   * @param args
+   *              The arguments of the command line.
+   * @return the campaign, a single level by default.
+   * @throws IOException
+   *              If the pack or the directory can't be read.
+   */
+  private static Campaign campaign(String[] args) throws IOException {
+    if(args.length == 0) {
+      return Campaign.of(List.of(Path.of("./levels/level_0.txt")), 0);
+    }
+    if(!args[0].equals("campaign")) {
+      return Campaign.of(List.of(Path.of(args[0])), 0);
+    }
+    if(args.length == 2 && args[1].endsWith(".bpak")) {
+      return Campaign.of(SaverLoader.openPack(Path.of(args[1])), Campaign.DEFAULT_AHEAD);
+    }
+    var levels = new ArrayList<Path>();
+    for(var i = 1; i < args.length; i++) {
+      var path = Path.of(args[i]);
+      if(Files.isDirectory(path)) {
+        try(var files = Files.list(path)) {
+          levels.addAll(files.filter(file -> file.getFileName().toString().endsWith(".txt")).sorted().collect(Collectors.toList()));
+        }
+      }
+      else {
+        levels.add(path);
+      }
+    }
+    return Campaign.of(levels, Campaign.DEFAULT_AHEAD);
+  }
+  
+  /**
+   * Draw a board on the whole screen.
+   * @param context
+   *              The context of the application.
+   * @param board
+   *              The board to draw.
+   * @param width
+   *              The width of the screen.
+   * @param height
+   *              The height of the screen.
+   */
+  private static void render(ApplicationContext context, Board board, float width, float height) {
+    context.renderFrame(graphics2D -> {
+      graphics2D.fill(new Rectangle2D.Float(0, 0, width, height));
+      BoardDisplay.displayBoard(board, graphics2D);
+    });
+  }
+  
+  public static void main(String[] args) throws IOException {
+    var campaign = campaign(args);
     Application.run(Color.BLACK, context -> {
-      var level = Path.of("./levels/level_0.txt");
-      
       ScreenInfo screenInfo = context.getScreenInfo();
       float width = screenInfo.getWidth();
       float height = screenInfo.getHeight();
       
-      var boardDisplay = new BoardDisplay(width, height, 33, 18); //resolve problem of static non final variable.
-      System.out.println(boardDisplay);
-      
-      var board = SaverLoader.configureLevel(level);
-
-      board.refreshRules();
-      if(!board.isValid()) {
-        System.err.println("Board not valid");
+      Board board;
+      try {
+        board = campaign.next();
+      } catch(IOException | IllegalStateException e) {
+        System.err.println(e.getMessage());
+        campaign.close();
+        context.exit(1);
+        return;
+      }
+      if(board == null) {
+        System.err.println("No level in the campaign");
         context.exit(1);
+        return;
       }
+      var boardDisplay = new BoardDisplay(width, height, board.getXMax(), board.getYMax()); //resolve problem of static non final variable.
+      System.out.println(boardDisplay);
+      var recording = campaign.getPath() == null ? null : new Recording(campaign.getPath());
    
-      context.renderFrame(graphics2D -> {
-        graphics2D.fill(new Rectangle2D.Float(0, 0, width, height));
-        board.displayBoard(graphics2D);
-      });
+      render(context, board, width, height);
           
       for(;;) {
         Event event = context.pollOrWaitEvent(10);
@@ -46,31 +133,59 @@ public class Main {
         if (action == Action.KEY_PRESSED) {
           var key = event.getKey();
           if(key.name() == "RIGHT" || key.name() == "LEFT" || key.name() == "UP" || key.name() == "DOWN") {
-            board.move(board.switchDirection(key.name()));
+            var direction = Direction.valueOf(key.name());
+            board.move(direction);
             board.refreshRules();
+            if(recording != null) {
+              recording.record(direction);
+            }
             if(board.isWin()) {
               System.out.println("Win");
-              context.exit(0);
-              return;
+              save(recording, board);
+              if(!campaign.hasNext()) {
+                campaign.close();
+                context.exit(0);
+                return;
+              }
+              try {
+                board = campaign.next();
+              } catch(IOException | IllegalStateException e) {
+                System.err.println(e.getMessage());
+                campaign.close();
+                context.exit(1);
+                return;
+              }
+              System.out.println("Level " + campaign.getName());
+              new BoardDisplay(width, height, board.getXMax(), board.getYMax());
+              recording = campaign.getPath() == null ? null : new Recording(campaign.getPath());
             }
             
             else if(board.isLoose()) {
               System.out.println("Loose");
+              save(recording, board);
+              campaign.close();
               context.exit(0);
               return;
             }
           }
         
+          if (key.name() == "Z" && board.undo() && recording != null) {
+            recording.undo();
+          }
+
+          if (key.name() == "Y" && board.redo() && recording != null) {
+            recording.redo();
+          }
+
           if (key.name() == "E") {
+            save(recording, board);
+            campaign.close();
             context.exit(0);
             return;
           }
         }     
-        context.renderFrame(graphics2D -> {
-          graphics2D.fill(new Rectangle2D.Float(0, 0, width, height));
-          board.displayBoard(graphics2D);
-        });       
+        render(context, board, width, height);
       }
     });
   }
-}
\ No newline at end of file
+}
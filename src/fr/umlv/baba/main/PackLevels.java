@@ -0,0 +1,37 @@
+package fr.umlv.baba.main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.stream.Collectors;
+
+import fr.umlv.baba.LevelPack;
+
+public class PackLevels {
+  
+  public static void main(String[] args) throws IOException {
+    if(args.length < 2) {
+      System.err.println("usage : PackLevels pack.bpak [compress] level.txt|directory...");
+      System.exit(2);
+      return;
+    }
+    var compress = args[1].equals("compress");
+    var levels = new ArrayList<Path>();
+    for(var i = compress ? 2 : 1; i < args.length; i++) {
+      var path = Path.of(args[i]);
+      if(Files.isDirectory(path)) {
+        try(var files = Files.list(path)) {
+          levels.addAll(files.filter(file -> file.getFileName().toString().endsWith(".txt")).sorted().collect(Collectors.toList()));
+        }
+      }
+      else {
+        levels.add(path);
+      }
+    }
+    var pack = Path.of(args[0]);
+    var start = System.nanoTime();
+    LevelPack.write(pack, levels, compress);
+    System.out.println(levels.size() + " levels written in " + pack + " (" + Files.size(pack) / 1024 + " KiB) in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+  }
+}
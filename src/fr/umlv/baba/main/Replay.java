@@ -0,0 +1,115 @@
+package fr.umlv.baba.main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import fr.umlv.baba.Board;
+import fr.umlv.baba.MoveOutcome;
+import fr.umlv.baba.Recording;
+import fr.umlv.baba.SaverLoader;
+
+public class Replay {
+  
+  /**
+   * Give how the game stands after a move.
+   * @param board
+   *              The board.
+   * @return WIN, LOOSE or UNFINISHED.
+   */
+  private static MoveOutcome.Result result(Board board) {
+    if(board.isWin()) {
+      return MoveOutcome.Result.WIN;
+    }
+    return board.isLoose() ? MoveOutcome.Result.LOOSE : MoveOutcome.Result.UNFINISHED;
+  }
+  
+  /**
+   * Play a recording again without display, check that it ends like it was recorded and print the speed of the engine.
+   * @param recording
+   *              The recording.
+   * @param runs
+   *              The number of times the moves are played, the first run is a warm-up when there are several.
+   * @return true if every run ended like the recording.
+   */
+  private static boolean replay(Recording recording, int runs) {
+    var moves = recording.getMoves();
+    var expected = recording.getOutcome();
+    var latencies = new long[moves.length * Math.max(1, runs - 1)];
+    var measured = 0;
+    var elapsed = 0L;
+    var refreshes = 0L;
+    var matches = true;
+    for(var run = 0; run < runs; run++) {
+      var board = SaverLoader.configureLevel(recording.getLevel());
+      board.setJournalLimit(0);
+      board.refreshRules();
+      var warmUp = runs > 1 && run == 0;
+      var rulesRead = board.getPartialRefreshes() + board.getFullRefreshes();
+      var start = System.nanoTime();
+      var played = 0;
+      var result = result(board);
+      for(; result == MoveOutcome.Result.UNFINISHED && played < moves.length; played++) {
+        var before = System.nanoTime();
+        board.move(moves[played]);
+        board.refreshRules();
+        result = result(board);
+        if(!warmUp) {
+          latencies[measured++] = System.nanoTime() - before;
+        }
+      }
+      if(!warmUp) {
+        elapsed += System.nanoTime() - start;
+        refreshes += board.getPartialRefreshes() + board.getFullRefreshes() - rulesRead;
+      }
+      if(played != expected.getPlayed() || result != expected.getResult() || board.stateHash() != expected.getStateHash()) {
+        System.out.println("MISMATCH " + recording.getLevel() + " : recorded " + expected + ", replayed " + result + " after " + played
+            + " moves, state " + Long.toHexString(board.stateHash()));
+        matches = false;
+      }
+    }
+    Arrays.sort(latencies, 0, measured);
+    var seconds = Math.max(elapsed, 1) / 1e9;
+    System.out.printf("%s %s : %d moves, %.0f moves/s, %.0f rule refreshes/s, latency p50 %s p90 %s p99 %s max %s%n",
+        matches ? "OK" : "FAILED", recording.getLevel(), moves.length, measured / seconds, refreshes / seconds,
+        micros(latencies, measured, 0.50), micros(latencies, measured, 0.90), micros(latencies, measured, 0.99), micros(latencies, measured, 1));
+    return matches;
+  }
+  
+  /**
+   * Format a percentile of sorted latencies.
+   * @param latencies
+   *              The sorted latencies, in nanoseconds.
+   * @param count
+   *              The number of latencies.
+   * @param percentile
+   *              The percentile, between 0 and 1.
+   * @return the latency in microseconds, like "12.5us".
+   */
+  private static String micros(long[] latencies, int count, double percentile) {
+    if(count == 0) {
+      return "-";
+    }
+    var index = Math.min(count - 1, (int) Math.ceil(percentile * count) - 1);
+    return String.format("%.1fus", latencies[Math.max(index, 0)] / 1e3);
+  }
+  
+  public static void main(String[] args) throws IOException {
+    if(args.length < 1) {
+      System.err.println("usage : Replay recording.rec... [runs]");
+      System.exit(2);
+      return;
+    }
+    var runs = 1;
+    var files = args.length;
+    if(args.length > 1 && args[args.length - 1].chars().allMatch(Character::isDigit)) {
+      runs = Integer.parseInt(args[args.length - 1]);
+      files--;
+    }
+    var matches = true;
+    for(var i = 0; i < files; i++) {
+      matches &= replay(Recording.load(Path.of(args[i])), Math.max(runs, 1));
+    }
+    System.exit(matches ? 0 : 1);
+  }
+}
@@ -0,0 +1,24 @@
+package fr.umlv.baba.main;
+
+import java.nio.file.Path;
+
+import fr.umlv.baba.SaverLoader;
+import fr.umlv.baba.solver.Solver;
+
+public class Solve {
+
+  public static void main(String[] args) {
+    if(args.length < 1 || args.length > 4) {
+      System.err.println("usage : Solve level.txt [maxNodes] [maxMemoryMiB] [prune]");
+      System.exit(2);
+      return;
+    }
+    var nodeBudget = args.length > 1 ? Long.parseLong(args[1]) : 10_000_000L;
+    var memoryBudget = (args.length > 2 ? Long.parseLong(args[2]) : 512L) << 20;
+    var pruning = args.length > 3 && args[3].equals("prune");
+
+    var board = SaverLoader.configureLevel(Path.of(args[0]));
+    var report = new Solver(nodeBudget, memoryBudget, pruning).solve(board);
+    System.out.println(report);
+  }
+}
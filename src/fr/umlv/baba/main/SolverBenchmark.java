@@ -0,0 +1,103 @@
+package fr.umlv.baba.main;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import fr.umlv.baba.Board;
+import fr.umlv.baba.Item;
+import fr.umlv.baba.Name;
+import fr.umlv.baba.Operator;
+import fr.umlv.baba.Property;
+import fr.umlv.baba.SaverLoader;
+import fr.umlv.baba.solver.ParallelSolver;
+
+public class SolverBenchmark {
+  private static final long NODE_BUDGET = 400_000;
+  private static final long MEMORY_BUDGET = 1L << 30;
+  private static final int RUNS = 3;
+
+  /**
+   * Build a room surrounded by walls, with the rules BABA IS YOU, WALL IS STOP, ROCK IS PUSH and FLAG IS WIN
+   * written in the first range, BABA at the left, FLAG at the right and rocks placed at random between them.
+   * @param xMax
+   *            The number of squares in a range.
+   * @param yMax
+   *            The number of squares in a column.
+   * @param rocks
+   *            The number of rocks.
+   * @param seed
+   *            The seed of the placement of the rocks.
+   * @return the board.
+   */
+  static Board syntheticLevel(int xMax, int yMax, int rocks, long seed) {
+    var board = new Board(xMax, yMax);
+    for(var x = 0; x < xMax; x++) {
+      board.add(Item.WALL, x);
+      board.add(Item.WALL, (yMax - 1) * xMax + x);
+    }
+    for(var y = 1; y < yMax - 1; y++) {
+      board.add(Item.WALL, y * xMax);
+      board.add(Item.WALL, y * xMax + xMax - 1);
+    }
+    var start = xMax + 1;
+    var sentences = new Object[][] {
+      { Name.TBABA, Operator.IS, Property.YOU }, { Name.TWALL, Operator.IS, Property.STOP },
+      { Name.TROCK, Operator.IS, Property.PUSH }, { Name.TFLAG, Operator.IS, Property.WIN }};
+    for(var sentence: sentences) {
+      for(var word: sentence) {
+        board.add((fr.umlv.baba.Element) word, start++);
+      }
+      start++;
+    }
+    var middle = yMax / 2 * xMax;
+    board.add(Item.BABA, middle + 1);
+    board.add(Item.FLAG, middle + xMax - 2);
+    var random = new Random(seed);
+    var used = new TreeSet<Integer>();
+    while(used.size() < rocks) {
+      var x = 2 + random.nextInt(xMax - 4);
+      var y = 3 + random.nextInt(yMax - 4);
+      var coord = y * xMax + x;
+      if(coord != middle + 1 && coord != middle + xMax - 2 && used.add(coord)) {
+        board.add(Item.ROCK, coord);
+      }
+    }
+    return board;
+  }
+
+  public static void main(String[] args) {
+    var cores = Runtime.getRuntime().availableProcessors();
+    var threads = new TreeSet<Integer>();
+    for(var count: new int[] { 1, 2, 4, 8, cores }) {
+      threads.add(count);
+    }
+    var levels = new LinkedHashMap<String, Supplier<Board>>();
+    levels.put("level_0", () -> SaverLoader.configureLevel(Path.of("./levels/level_0.txt")));
+    levels.put("room 12x9, 6 rocks", () -> syntheticLevel(12, 9, 6, 1));
+    levels.put("room 20x12, 14 rocks", () -> syntheticLevel(20, 12, 14, 2));
+    for(var level: levels.values()) {
+      new ParallelSolver(1, NODE_BUDGET, MEMORY_BUDGET).solve(level.get());
+      new ParallelSolver(threads.last(), NODE_BUDGET, MEMORY_BUDGET).solve(level.get());
+    }
+    System.out.println(cores + " cores available, best of " + RUNS + " runs, at most " + NODE_BUDGET + " states");
+    for(var level: levels.entrySet()) {
+      var best = new TreeMap<Integer, Long>();
+      var results = new TreeMap<Integer, String>();
+      for(var run = 0; run < RUNS; run++) {
+        for(var count: threads) {
+          var report = new ParallelSolver(count, NODE_BUDGET, MEMORY_BUDGET).solve(level.getValue().get());
+          best.merge(count, report.getElapsed(), Math::min);
+          results.put(count, report.getStatus() + " " + report.getPath().size() + " moves, " + report.getStates() + " states");
+        }
+      }
+      var reference = best.get(1);
+      for(var count: threads) {
+        System.out.printf("%-22s %2d threads : %8.1f ms  speedup %5.2f  (%s)%n", level.getKey(), count, best.get(count) / 1e6, (double) reference / best.get(count), results.get(count));
+      }
+    }
+  }
+}
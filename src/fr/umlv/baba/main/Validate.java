@@ -0,0 +1,172 @@
+package fr.umlv.baba.main;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import fr.umlv.baba.Board;
+import fr.umlv.baba.LevelPack;
+import fr.umlv.baba.SaverLoader;
+import fr.umlv.baba.solver.Solver;
+import fr.umlv.baba.solver.SolverReport;
+
+public class Validate {
+  private static final AtomicInteger VALID = new AtomicInteger();
+  private static final AtomicInteger INVALID = new AtomicInteger();
+  private static final AtomicInteger ERRORS = new AtomicInteger();
+  private static final AtomicInteger SOLVED = new AtomicInteger();
+
+  /**
+   * Write a String as a JSON string.
+   * @param text
+   *              The text, null gives null.
+   * @return the JSON string, between quotes.
+   */
+  private static String quote(String text) {
+    if(text == null) {
+      return "null";
+    }
+    var builder = new StringBuilder(text.length() + 2).append('"');
+    for(var c: text.toCharArray()) {
+      if(c == '"' || c == '\\') {
+        builder.append('\\').append(c);
+      }
+      else if(c < ' ') {
+        builder.append(String.format("\\u%04x", (int) c));
+      }
+      else {
+        builder.append(c);
+      }
+    }
+    return builder.append('"').toString();
+  }
+
+  /**
+   * Check a level and write its result as a line of JSON : the result is VALID, INVALID or ERROR
+   * (the level can't be loaded or the solver failed on it), then the times in milliseconds and the result of the solver if it is asked.
+   * @param index
+   *              The index of the level.
+   * @param name
+   *              The name of the level.
+   * @param loader
+   *              The loader of the level.
+   * @param solver
+   *              The solver, or null to only check the validity.
+   */
+  private static void check(int index, String name, Callable<Board> loader, Solver solver) {
+    var line = new StringBuilder("{\"index\":").append(index).append(",\"level\":").append(quote(name));
+    var start = System.nanoTime();
+    Board board;
+    try {
+      board = loader.call();
+    } catch(Exception e) {
+      ERRORS.incrementAndGet();
+      line.append(",\"result\":\"ERROR\",\"reason\":").append(quote(String.valueOf(e.getMessage())));
+      print(line.append(String.format(",\"loadMs\":%.3f}", (System.nanoTime() - start) / 1e6)));
+      return;
+    }
+    var loaded = System.nanoTime();
+    board.refreshRules();
+    var error = board.validityError();
+    var checked = System.nanoTime();
+    var solved = new StringBuilder();
+    if(solver != null && error == null) {
+      SolverReport report;
+      try {
+        report = solver.solve(board);
+      } catch(RuntimeException e) {
+        ERRORS.incrementAndGet();
+        line.append(",\"result\":\"ERROR\",\"reason\":").append(quote("The solver failed : " + e));
+        print(line.append(String.format(",\"loadMs\":%.3f,\"checkMs\":%.3f}", (loaded - start) / 1e6, (checked - loaded) / 1e6)));
+        return;
+      }
+      if(report.getStatus() == SolverReport.Status.SOLVED) {
+        SOLVED.incrementAndGet();
+      }
+      solved.append(",\"solver\":\"").append(report.getStatus()).append('"');
+      if(report.getStatus() == SolverReport.Status.SOLVED) {
+        solved.append(",\"moves\":").append(report.getPath().size());
+      }
+      solved.append(",\"states\":").append(report.getStates()).append(",\"nodes\":").append(report.getNodes());
+      solved.append(String.format(",\"solveMs\":%.3f", report.getElapsed() / 1e6));
+    }
+    (error == null ? VALID : INVALID).incrementAndGet();
+    line.append(",\"result\":").append(error == null ? "\"VALID\"" : "\"INVALID\",\"reason\":" + quote(error));
+    line.append(",\"xMax\":").append(board.getXMax()).append(",\"yMax\":").append(board.getYMax());
+    line.append(String.format(",\"loadMs\":%.3f,\"checkMs\":%.3f", (loaded - start) / 1e6, (checked - loaded) / 1e6));
+    print(line.append(solved).append('}'));
+  }
+
+  /**
+   * Print a line of the report as soon as it is ready, the lines of the threads are not mixed.
+   * @param line
+   *              The line.
+   */
+  private static void print(CharSequence line) {
+    synchronized(System.out) {
+      System.out.println(line);
+      System.out.flush();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    if(args.length < 1) {
+      System.err.println("usage : Validate directory|pack.bpak [threads=cores] [solve=seconds] [nodes=10000000] [memory=256] [prune]");
+      System.exit(2);
+      return;
+    }
+    var options = new HashMap<String, String>();
+    for(var i = 1; i < args.length; i++) {
+      var option = args[i].split("=", 2);
+      options.put(option[0], option.length == 2 ? option[1] : "");
+    }
+    var threads = Integer.parseInt(options.getOrDefault("threads", "" + Runtime.getRuntime().availableProcessors()));
+    var solver = !options.containsKey("solve") ? null : new Solver(Long.parseLong(options.getOrDefault("nodes", "10000000")),
+        Long.parseLong(options.getOrDefault("memory", "256")) << 20, (long) (Double.parseDouble(options.get("solve")) * 1e9), options.containsKey("prune"));
+
+    var names = new ArrayList<String>();
+    var loaders = new ArrayList<Callable<Board>>();
+    var source = Path.of(args[0]);
+    LevelPack pack = null;
+    if(Files.isDirectory(source)) {
+      try(var files = Files.list(source)) {
+        for(var level: files.filter(file -> file.getFileName().toString().endsWith(".txt")).sorted().collect(Collectors.toList())) {
+          names.add(level.getFileName().toString());
+          loaders.add(() -> SaverLoader.loadLevel(level));
+        }
+      }
+    }
+    else {
+      pack = SaverLoader.openPack(source);
+      var levels = pack;
+      for(var i = 0; i < pack.size(); i++) {
+        var index = i;
+        names.add(pack.getName(i));
+        loaders.add(() -> levels.load(index));
+      }
+    }
+
+    var start = System.nanoTime();
+    var executor = Executors.newFixedThreadPool(threads);
+    for(var i = 0; i < names.size(); i++) {
+      var index = i;
+      executor.execute(() -> check(index, names.get(index), loaders.get(index), solver));
+    }
+    executor.shutdown();
+    while(!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+      // the levels are still being checked
+    }
+    if(pack != null) {
+      pack.close();
+    }
+    print(String.format("{\"summary\":true,\"levels\":%d,\"valid\":%d,\"invalid\":%d,\"errors\":%d,%s\"threads\":%d,\"elapsedMs\":%.3f}",
+        names.size(), VALID.get(), INVALID.get(), ERRORS.get(), solver == null ? "" : "\"solved\":" + SOLVED.get() + ",", threads, (System.nanoTime() - start) / 1e6));
+    System.exit(INVALID.get() + ERRORS.get() == 0 ? 0 : 1);
+  }
+}
@@ -0,0 +1,175 @@
+package fr.umlv.baba.solver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * ConcurrentFingerprintTable is a FingerprintTable shared by several threads without lock.
+ * A fingerprint is added by a compare-and-set on an empty slot of an AtomicLongArray (open addressing, linear probing).
+ * Each fingerprint has an owner, a positive number : when several threads add the same fingerprint, the smallest owner is kept
+ * by a compare-and-set, so once the threads are done the owner of a fingerprint does not depend on their order.
+ * The table does not grow by itself : its capacity is ensured between two steps of the search, when no thread adds.
+ *
+ * @see FingerprintTable
+ * @see AtomicLongArray
+ */
+public final class ConcurrentFingerprintTable {
+  private static final int MIN_CAPACITY = 16;
+  private AtomicLongArray slots;
+  private AtomicLongArray owners;
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * Create an empty table.
+   *
+   * @param expected
+   *              The number of fingerprints the table can receive before ensureCapacity is called.
+   */
+  public ConcurrentFingerprintTable(int expected) {
+    if(expected < 0) {
+      throw new IllegalArgumentException("The expected size can't be negative");
+    }
+    var capacity = capacityFor(expected);
+    this.slots = new AtomicLongArray(capacity);
+    this.owners = new AtomicLongArray(capacity);
+  }
+
+  /**
+   * Compute the capacity of a table, a power of two keeping the load under 3/4.
+   * @param expected
+   *              The number of fingerprints.
+   * @return the number of slots.
+   */
+  private static int capacityFor(long expected) {
+    var capacity = MIN_CAPACITY;
+    while(capacity - (capacity >>> 2) <= expected) {
+      if(capacity == 1 << 30) {
+        throw new IllegalStateException("Too many fingerprints");
+      }
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /**
+   * Add a fingerprint in the table with an owner, or give it this owner if it is smaller than its current one.
+   * It can be called by several threads at the same time.
+   *
+   * @param fingerprint
+   *              The fingerprint of a state.
+   * @param owner
+   *              The owner of the state, a positive number.
+   * @return true if the owner is the smallest one given to the fingerprint so far, false if a smaller or equal owner was given before.
+   */
+  public boolean claim(long fingerprint, long owner) {
+    if(owner <= 0) {
+      throw new IllegalArgumentException("The owner must be positive");
+    }
+    if(fingerprint == 0) {
+      fingerprint = 1;
+    }
+    var slots = this.slots;
+    var mask = slots.length() - 1;
+    for(var index = (int) (fingerprint ^ fingerprint >>> 32) & mask;; index = (index + 1) & mask) {
+      var slot = slots.get(index);
+      if(slot == 0) {
+        if(slots.compareAndSet(index, 0, fingerprint)) {
+          if(size.incrementAndGet() == slots.length()) {
+            throw new IllegalStateException("The table is full");
+          }
+        }
+        slot = slots.get(index);
+      }
+      if(slot == fingerprint) {
+        for(;;) {
+          var current = owners.get(index);
+          if(current != 0 && current <= owner) {
+            return false;
+          }
+          if(owners.compareAndSet(index, current, owner)) {
+            return true;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the owner of a fingerprint, it must not be called while other threads add fingerprints.
+   *
+   * @param fingerprint
+   *              The fingerprint of a state.
+   * @return the smallest owner given to the fingerprint, or 0 if it is not in the table.
+   */
+  public long owner(long fingerprint) {
+    if(fingerprint == 0) {
+      fingerprint = 1;
+    }
+    var mask = slots.length() - 1;
+    for(var index = (int) (fingerprint ^ fingerprint >>> 32) & mask;; index = (index + 1) & mask) {
+      var slot = slots.get(index);
+      if(slot == 0) {
+        return 0;
+      }
+      if(slot == fingerprint) {
+        return owners.get(index);
+      }
+    }
+  }
+
+  /**
+   * A getter to know the number of fingerprints in the table.
+   *
+   * @return size
+   */
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Make the table able to receive more fingerprints while keeping a load under 3/4.
+   * It must not be called while other threads add fingerprints.
+   *
+   * @param added
+   *              The number of fingerprints that can be added before the next call.
+   */
+  public void ensureCapacity(long added) {
+    var capacity = capacityFor(this.size() + added);
+    if(capacity <= slots.length()) {
+      return;
+    }
+    var newSlots = new AtomicLongArray(capacity);
+    var newOwners = new AtomicLongArray(capacity);
+    var mask = capacity - 1;
+    for(var i = 0; i < slots.length(); i++) {
+      var fingerprint = slots.get(i);
+      if(fingerprint != 0) {
+        var index = (int) (fingerprint ^ fingerprint >>> 32) & mask;
+        while(newSlots.get(index) != 0) {
+          index = (index + 1) & mask;
+        }
+        newSlots.set(index, fingerprint);
+        newOwners.set(index, owners.get(i));
+      }
+    }
+    slots = newSlots;
+    owners = newOwners;
+  }
+
+  /**
+   * Get the memory the table will use to receive more fingerprints, counting the old slots still alive during a growth.
+   *
+   * @param added
+   *              The number of fingerprints to add.
+   * @return the number of bytes.
+   */
+  public long bytesFor(long added) {
+    var bytes = (long) slots.length() * 2 * Long.BYTES;
+    var capacity = capacityFor(this.size() + added);
+    if(capacity > slots.length()) {
+      bytes += (long) capacity * 2 * Long.BYTES;
+    }
+    return bytes;
+  }
+}
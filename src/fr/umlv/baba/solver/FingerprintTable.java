@@ -0,0 +1,168 @@
+package fr.umlv.baba.solver;
+
+import java.util.Arrays;
+
+
+/**
+ * FingerprintTable is a set of 64 bits fingerprints of states (see Board.stateHash), stored in an open-addressing table of longs.
+ * A state costs 8 to 16 bytes in the table, whatever the size of the board.
+ * The value 0 marks an empty slot, so the fingerprint 0 is stored as 1 (two states can share a fingerprint anyway).
+ *
+ */
+public final class FingerprintTable {
+  private static final int MIN_CAPACITY = 16;
+  private long[] slots;
+  private int size;
+
+  /**
+   * Create an empty table.
+   *
+   * @param expected
+   *              The number of fingerprints expected, the table grows if there is more.
+   */
+  public FingerprintTable(int expected) {
+    if(expected < 0) {
+      throw new IllegalArgumentException("The expected size can't be negative");
+    }
+    this.slots = new long[capacityFor(expected)];
+  }
+
+  /**
+   * Compute the capacity of a table, a power of two keeping the load under 3/4.
+   * @param expected
+   *              The number of fingerprints.
+   * @return the number of slots.
+   */
+  private static int capacityFor(int expected) {
+    var capacity = MIN_CAPACITY;
+    while(capacity - (capacity >>> 2) <= expected) {
+      if(capacity == 1 << 30) {
+        throw new IllegalStateException("Too many fingerprints");
+      }
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /**
+   * Add a fingerprint in the table.
+   *
+   * @param fingerprint
+   *              The fingerprint of a state.
+   * @return true if the fingerprint was not in the table.
+   */
+  public boolean add(long fingerprint) {
+    if(fingerprint == 0) {
+      fingerprint = 1;
+    }
+    if(size + 1 > slots.length - (slots.length >>> 2)) {
+      this.grow();
+    }
+    if(insert(slots, fingerprint)) {
+      size++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Check if a fingerprint is in the table.
+   *
+   * @param fingerprint
+   *              The fingerprint of a state.
+   * @return true if the fingerprint was added before.
+   */
+  public boolean contains(long fingerprint) {
+    if(fingerprint == 0) {
+      fingerprint = 1;
+    }
+    var mask = slots.length - 1;
+    for(var index = indexOf(fingerprint) & mask; slots[index] != 0; index = (index + 1) & mask) {
+      if(slots[index] == fingerprint) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Give the first slot where a fingerprint is searched.
+   * @param fingerprint
+   *              The fingerprint, already well mixed.
+   * @return an index to reduce with the mask of the table.
+   */
+  private static int indexOf(long fingerprint) {
+    return (int) (fingerprint ^ fingerprint >>> 32);
+  }
+
+  /**
+   * Insert a fingerprint in an array of slots, by linear probing.
+   * @param slots
+   *              The slots, an array with a power of two length.
+   * @param fingerprint
+   *              The fingerprint, not 0.
+   * @return true if the fingerprint was not in the slots.
+   */
+  private static boolean insert(long[] slots, long fingerprint) {
+    var mask = slots.length - 1;
+    var index = indexOf(fingerprint) & mask;
+    for(; slots[index] != 0; index = (index + 1) & mask) {
+      if(slots[index] == fingerprint) {
+        return false;
+      }
+    }
+    slots[index] = fingerprint;
+    return true;
+  }
+
+  /**
+   * Double the number of slots.
+   */
+  private void grow() {
+    var newSlots = new long[capacityFor(size + 1)];
+    for(var fingerprint: slots) {
+      if(fingerprint != 0) {
+        insert(newSlots, fingerprint);
+      }
+    }
+    slots = newSlots;
+  }
+
+  /**
+   * A getter to know the number of fingerprints in the table.
+   *
+   * @return size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the memory used by the slots of the table.
+   *
+   * @return the number of bytes of the slots.
+   */
+  public long bytes() {
+    return (long) slots.length * Long.BYTES;
+  }
+
+  /**
+   * Get the memory the table will use after the next add, counting the old slots still alive during a growth.
+   *
+   * @return the number of bytes needed by the next add.
+   */
+  public long bytesForNextAdd() {
+    if(size + 1 > slots.length - (slots.length >>> 2)) {
+      return this.bytes() + (long) capacityFor(size + 1) * Long.BYTES;
+    }
+    return this.bytes();
+  }
+
+  /**
+   * Remove all the fingerprints, the slots are kept.
+   */
+  public void clear() {
+    Arrays.fill(slots, 0L);
+    size = 0;
+  }
+}
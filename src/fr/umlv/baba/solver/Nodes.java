@@ -0,0 +1,109 @@
+package fr.umlv.baba.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Nodes is the tree of the states reached by a search. A node is only its parent, its depth and the move that reached it,
+ * stored in arrays by index of node. The first node (index 0) is the first state of the board.
+ *
+ */
+final class Nodes {
+  private static final int NODE_BYTES = Integer.BYTES * 2 + Byte.BYTES;
+  private int[] parents = new int[1024];
+  private int[] depths = new int[1024];
+  private byte[] moves = new byte[1024];
+  private int count;
+
+  /**
+   * Add a node at the end.
+   * @param parent
+   *              The parent node, -1 for the first state.
+   * @param move
+   *              The index of the direction that reached the node from its parent (see Solver.DIRECTIONS).
+   * @return the index of the node.
+   */
+  int add(int parent, int move) {
+    if(count == parents.length) {
+      parents = Arrays.copyOf(parents, count * 2);
+      depths = Arrays.copyOf(depths, count * 2);
+      moves = Arrays.copyOf(moves, count * 2);
+    }
+    parents[count] = parent;
+    depths[count] = parent == -1 ? 0 : depths[parent] + 1;
+    moves[count] = (byte) move;
+    return count++;
+  }
+
+  /**
+   * A getter to know the number of nodes.
+   * @return count
+   */
+  int count() {
+    return count;
+  }
+
+  /**
+   * Get the parent of a node.
+   * @param node
+   *              The index of the node.
+   * @return the index of its parent, -1 for the first node.
+   */
+  int parent(int node) {
+    return parents[node];
+  }
+
+  /**
+   * Get the depth of a node, the number of moves from the first state.
+   * @param node
+   *              The index of the node.
+   * @return the depth.
+   */
+  int depth(int node) {
+    return depths[node];
+  }
+
+  /**
+   * Get the move that reached a node from its parent.
+   * @param node
+   *              The index of the node.
+   * @return the index of the direction (see Solver.DIRECTIONS).
+   */
+  int move(int node) {
+    return moves[node];
+  }
+
+  /**
+   * Get the memory the nodes will use after adding some nodes, counting the old arrays still alive during a growth.
+   * @param added
+   *              The number of nodes to add.
+   * @return the memory in bytes.
+   */
+  long bytesFor(int added) {
+    var capacity = (long) parents.length;
+    var bytes = capacity * NODE_BYTES;
+    while(count + (long) added > capacity) {
+      capacity *= 2;
+      bytes += capacity * NODE_BYTES;
+    }
+    return bytes;
+  }
+
+  /**
+   * Give the moves from the first state to a node.
+   * @param node
+   *              The index of the node, -1 for no path.
+   * @return the list of the directions ("LEFT", "RIGHT", "UP", "DOWN").
+   */
+  List<String> path(int node) {
+    var path = new ArrayList<String>();
+    for(; node > 0; node = parents[node]) {
+      path.add(Solver.DIRECTIONS[moves[node]]);
+    }
+    Collections.reverse(path);
+    return path;
+  }
+}
@@ -0,0 +1,453 @@
+package fr.umlv.baba.solver;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import fr.umlv.baba.Board;
+import fr.umlv.baba.Deadlocks;
+
+
+/**
+ * ParallelSolver is a Solver that expands the states of a level with several threads.
+ * The search goes depth by depth : the nodes of a depth are split in tasks of a ForkJoinPool, which balances them by work stealing.
+ * Each thread plays on its own copy of the board (see Board.copy) and adds the states it finds to a ConcurrentFingerprintTable,
+ * with as owner the number of their parent and their move : when two threads find the same state, the smallest owner is kept,
+ * the one Solver would have found first. Each task keeps the states it owns, with their fingerprint, in its own chunk.
+ * After a depth, the chunks drop in parallel the states that a smaller owner took from them, then they are appended
+ * to the tree on one thread in the order of the parents and the moves, with the checks of the budgets of Solver.
+ * So the states kept, the node budget and the solution are the ones of Solver, whatever the threads.
+ * A depth is always expanded to its end, the table is sized for it before it starts. Like Solver, it can leave the deadlocks unexpanded.
+ *
+ * @see Solver
+ * @see ConcurrentFingerprintTable
+ * @see ForkJoinPool
+ */
+public class ParallelSolver {
+  private static final int GRAIN = 64;
+  private static final int LAST_MOVE = Solver.DIRECTIONS.length - 1;
+  private static final int MOVE_BITS = 2;
+  private static final int KIND_BITS = 2;
+  private static final int OPEN = 0;
+  private static final int CLOSED = 1;
+  private static final int PRUNED = 2;
+  private static final int WIN = 3;
+  private static final int CHILD_BYTES = 2 * Long.BYTES;
+  private static final long ROOT = 1;
+
+  private final int parallelism;
+  private final long nodeBudget;
+  private final long memoryBudget;
+  private final long timeBudget;
+  private final boolean pruning;
+
+  /**
+   * Worker is the state of a thread of the search : a walker on a copy of the board.
+   */
+  private static final class Worker {
+    private final Walker walker;
+    private final Deadlocks deadlocks;
+
+    private Worker(Board board, boolean pruning) {
+      this.walker = new Walker(board);
+      this.deadlocks = pruning ? new Deadlocks(board) : null;
+    }
+  }
+
+  /**
+   * Chunk is the new states found by a task, in the order of their parent and their move.
+   */
+  private static final class Chunk {
+    private final int from;
+    private final long[] children;
+    private final long[] fingerprints;
+    private int count;
+
+    private Chunk(int from, int to) {
+      this.from = from;
+      this.children = new long[(to - from) * Solver.DIRECTIONS.length];
+      this.fingerprints = new long[children.length];
+    }
+
+    /**
+     * Remember a new state.
+     * @param owner
+     *              Its owner in the table (see owner).
+     * @param kind
+     *              OPEN if it is to expand, CLOSED if it is lost, PRUNED if it is a deadlock, WIN if it wins.
+     * @param fingerprint
+     *              Its fingerprint.
+     */
+    private void add(long owner, int kind, long fingerprint) {
+      children[count] = owner << KIND_BITS | kind;
+      fingerprints[count++] = fingerprint;
+    }
+
+    /**
+     * Drop the states whose fingerprint was claimed by a smaller owner, once the depth is expanded.
+     * @param table
+     *              The table of the visited states.
+     */
+    private void filter(ConcurrentFingerprintTable table) {
+      var kept = 0;
+      for(var i = 0; i < count; i++) {
+        if(table.owner(fingerprints[i]) == children[i] >>> KIND_BITS) {
+          children[kept] = children[i];
+          fingerprints[kept++] = fingerprints[i];
+        }
+      }
+      count = kept;
+    }
+  }
+
+  /**
+   * Compute the owner of a state in the table, it is ordered like Solver finds the states and greater than the owner of the root.
+   * @param parent
+   *              The index of its parent.
+   * @param move
+   *              The index of the direction that reached it.
+   * @return the owner.
+   */
+  private static long owner(int parent, int move) {
+    return ((long) parent << MOVE_BITS | move) + ROOT + 1;
+  }
+
+  /**
+   * Search is the state of a search shared by the tasks.
+   */
+  private final class Search {
+    private final Board board;
+    private final long start;
+    private final Nodes nodes = new Nodes();
+    private final ConcurrentFingerprintTable table = new ConcurrentFingerprintTable(1024);
+    private final ConcurrentLinkedQueue<Worker> idle = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Worker> workers = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+    private final AtomicLong winner = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong buffered = new AtomicLong();
+    private final AtomicReference<SolverReport.Status> stopped = new AtomicReference<>();
+    private long memory;
+    private long peakMemory;
+    private long pruned;
+    private long states;
+
+    private Search(Board board, long start) {
+      this.board = board;
+      this.start = start;
+    }
+
+    /**
+     * Take a worker that is not used by another task, a new one is created if needed.
+     * @return the worker.
+     */
+    private Worker acquire() {
+      var worker = idle.poll();
+      if(worker == null) {
+        var copy = board.copy();
+        copy.setJournalLimit(memoryBudget);
+        worker = new Worker(copy, pruning);
+        workers.add(worker);
+      }
+      return worker;
+    }
+
+    /**
+     * Expand some nodes of the current depth with a worker.
+     * @param from
+     *              The first node (included).
+     * @param to
+     *              The last node (excluded).
+     */
+    private void expand(int from, int to) {
+      var worker = this.acquire();
+      var chunk = new Chunk(from, to);
+      try {
+        var walker = worker.walker;
+        var copy = walker.board();
+        for(var node = from; node < to && stopped.get() == null && owner(node, 0) <= winner.get(); node++) {
+          if((node & 0xFF) == 0 && System.nanoTime() - start > timeBudget) {
+            stopped.compareAndSet(null, SolverReport.Status.TIME_BUDGET);
+            return;
+          }
+          if(!walker.goTo(nodes, node)) {
+            stopped.compareAndSet(null, SolverReport.Status.MEMORY_BUDGET);
+            return;
+          }
+          var count = chunk.count;
+          for(var move = 0; move <= LAST_MOVE; move++) {
+            walker.play(move);
+            var fingerprint = copy.stateHash();
+            var owner = owner(node, move);
+            if(table.claim(fingerprint, owner)) {
+              if(copy.isWin()) {
+                chunk.add(owner, WIN, fingerprint);
+                winner.accumulateAndGet(owner, Math::min);
+              }
+              else if(copy.isLoose()) {
+                chunk.add(owner, CLOSED, fingerprint);
+              }
+              else if(worker.deadlocks != null && worker.deadlocks.isDeadlocked()) {
+                chunk.add(owner, PRUNED, fingerprint);
+              }
+              else {
+                chunk.add(owner, OPEN, fingerprint);
+              }
+            }
+            if(!walker.undo()) {
+              stopped.compareAndSet(null, SolverReport.Status.MEMORY_BUDGET);
+              return;
+            }
+          }
+          if(memory + buffered.addAndGet(chunk.count - count) * CHILD_BYTES > memoryBudget) {
+            stopped.compareAndSet(null, SolverReport.Status.MEMORY_BUDGET);
+            return;
+          }
+        }
+      }
+      finally {
+        if(chunk.count != 0) {
+          chunks.add(chunk);
+        }
+        idle.add(worker);
+      }
+    }
+  }
+
+  /**
+   * Expand is a task expanding a range of nodes, split in two until it is small enough.
+   */
+  @SuppressWarnings("serial")
+  private static final class Expand extends RecursiveAction {
+    private final Search search;
+    private final int from;
+    private final int to;
+
+    private Expand(Search search, int from, int to) {
+      this.search = search;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if(to - from <= GRAIN) {
+        search.expand(from, to);
+        return;
+      }
+      var middle = (from + to) >>> 1;
+      invokeAll(new Expand(search, from, middle), new Expand(search, middle, to));
+    }
+  }
+
+  /**
+   * Filter is a task dropping from some chunks the states claimed by a smaller owner, split in two until it has one chunk.
+   */
+  @SuppressWarnings("serial")
+  private static final class Filter extends RecursiveAction {
+    private final ConcurrentFingerprintTable table;
+    private final Chunk[] chunks;
+    private final int from;
+    private final int to;
+
+    private Filter(ConcurrentFingerprintTable table, Chunk[] chunks, int from, int to) {
+      this.table = table;
+      this.chunks = chunks;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if(to - from <= 1) {
+        for(var i = from; i < to; i++) {
+          chunks[i].filter(table);
+        }
+        return;
+      }
+      var middle = (from + to) >>> 1;
+      invokeAll(new Filter(table, chunks, from, middle), new Filter(table, chunks, middle, to));
+    }
+  }
+
+  /**
+   * A ParallelSolver uses a number of threads, and stops when it has visited too many states or used too much memory.
+   * @param parallelism
+   *              The number of threads.
+   * @param nodeBudget
+   *              The maximum number of different states visited.
+   * @param memoryBudget
+   *              The maximum memory used by the states, in bytes, counting the table sized for the next depth
+   *              and the states found during a depth and not yet merged.
+   * @param pruning
+   *              true to not expand the deadlocks (see Solver).
+   */
+  public ParallelSolver(int parallelism, long nodeBudget, long memoryBudget, boolean pruning) {
+    this(parallelism, nodeBudget, memoryBudget, Long.MAX_VALUE, pruning);
+  }
+
+  /**
+   * A ParallelSolver uses a number of threads, and stops when it has visited too many states, used too much memory
+   * or searched for too long. The time is checked every 256 states expanded, like with Solver.
+   * @param parallelism
+   *              The number of threads.
+   * @param nodeBudget
+   *              The maximum number of different states visited.
+   * @param memoryBudget
+   *              The maximum memory used by the states, in bytes, counting the table sized for the next depth
+   *              and the states found during a depth and not yet merged.
+   * @param timeBudget
+   *              The maximum time of the search, in nanoseconds.
+   * @param pruning
+   *              true to not expand the deadlocks (see Solver).
+   */
+  public ParallelSolver(int parallelism, long nodeBudget, long memoryBudget, long timeBudget, boolean pruning) {
+    if(parallelism <= 0) {
+      throw new IllegalArgumentException("The number of threads must be positive");
+    }
+    if(nodeBudget <= 0 || memoryBudget <= 0 || timeBudget <= 0) {
+      throw new IllegalArgumentException("The budgets must be positive");
+    }
+    this.parallelism = parallelism;
+    this.nodeBudget = nodeBudget;
+    this.memoryBudget = memoryBudget;
+    this.timeBudget = timeBudget;
+    this.pruning = pruning;
+  }
+
+  /**
+   * A ParallelSolver uses a number of threads, and stops when it has visited too many states or used too much memory.
+   * It expands all the states.
+   * @param parallelism
+   *              The number of threads.
+   * @param nodeBudget
+   *              The maximum number of different states visited.
+   * @param memoryBudget
+   *              The maximum memory used by the states, in bytes.
+   */
+  public ParallelSolver(int parallelism, long nodeBudget, long memoryBudget) {
+    this(parallelism, nodeBudget, memoryBudget, false);
+  }
+
+  /**
+   * Search a shortest solution of a board. The board is only copied, it is not modified except for the refresh of its rules.
+   * The memory limit of the undo journal of the copies is the memory budget, if a copy still forgets a move
+   * needed to go back up the tree, the search stops with MEMORY_BUDGET.
+   *
+   * @param board
+   *              The board to solve, its rules are refreshed first.
+   * @return the report of the search.
+   *
+   * @see Board
+   * @see SolverReport
+   */
+  public SolverReport solve(Board board) {
+    Objects.requireNonNull(board);
+    var start = System.nanoTime();
+    board.refreshRules();
+    var search = new Search(board, start);
+    var nodes = search.nodes;
+    var table = search.table;
+    table.claim(board.stateHash(), ROOT);
+    nodes.add(-1, -1);
+    search.states = 1;
+    search.peakMemory = table.bytesFor(0) + nodes.bytesFor(0);
+    var status = SolverReport.Status.UNSOLVABLE;
+    var solution = -1;
+    if(board.isWin()) {
+      status = SolverReport.Status.SOLVED;
+      solution = 0;
+    }
+    var pool = new ForkJoinPool(parallelism);
+    try {
+      for(int from = 0, to = nodes.count(); solution == -1 && from < to; from = to, to = nodes.count()) {
+        var added = (long) (to - from) * Solver.DIRECTIONS.length;
+        var memory = table.bytesFor(added) + nodes.bytesFor(0);
+        if(memory > memoryBudget) {
+          status = SolverReport.Status.MEMORY_BUDGET;
+          break;
+        }
+        search.peakMemory = Math.max(search.peakMemory, memory);
+        table.ensureCapacity(added);
+        search.memory = table.bytesFor(0) + nodes.bytesFor(0);
+        pool.invoke(new Expand(search, from, to));
+        var stopped = search.stopped.get();
+        if(stopped != null) {
+          status = stopped;
+          break;
+        }
+        var chunks = search.chunks.toArray(Chunk[]::new);
+        search.chunks.clear();
+        Arrays.sort(chunks, Comparator.comparingInt(chunk -> chunk.from));
+        pool.invoke(new Filter(table, chunks, 0, chunks.length));
+        var merged = this.merge(search, chunks);
+        if(merged != null) {
+          status = merged;
+          if(merged == SolverReport.Status.SOLVED) {
+            solution = nodes.count() - 1;
+          }
+          break;
+        }
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+    var played = 0L;
+    for(var worker: search.workers) {
+      played += worker.walker.played();
+    }
+    return new SolverReport(status, nodes.path(solution), played, search.states, search.pruned, System.nanoTime() - start, search.peakMemory);
+  }
+
+  /**
+   * Add to the tree the states owned by the tasks after a depth, in the order of their parent and their move,
+   * with the checks of the budgets of Solver. The merge stops at the first win of the depth.
+   * @param search
+   *              The search.
+   * @param chunks
+   *              The filtered chunks of the depth, in the order of their first node.
+   * @return SOLVED if the win was added as the last node, NODE_BUDGET or MEMORY_BUDGET if a budget is exceeded,
+   *              or null to search the next depth.
+   */
+  private SolverReport.Status merge(Search search, Chunk[] chunks) {
+    var nodes = search.nodes;
+    var tableBytes = search.table.bytesFor(0);
+    var buffered = search.buffered.getAndSet(0) * CHILD_BYTES;
+    var winner = search.winner.get();
+    for(var chunk: chunks) {
+      for(var i = 0; i < chunk.count; i++) {
+        var owner = chunk.children[i] >>> KIND_BITS;
+        if(owner > winner) {
+          return null;
+        }
+        var child = owner - ROOT - 1;
+        var kind = (int) (chunk.children[i] & ((1 << KIND_BITS) - 1));
+        if(kind != WIN && search.states >= nodeBudget) {
+          return SolverReport.Status.NODE_BUDGET;
+        }
+        var memory = tableBytes + nodes.bytesFor(1) + buffered;
+        if(memory > memoryBudget) {
+          return SolverReport.Status.MEMORY_BUDGET;
+        }
+        search.states++;
+        search.peakMemory = Math.max(search.peakMemory, memory);
+        if(kind == WIN) {
+          nodes.add((int) (child >>> MOVE_BITS), (int) (child & LAST_MOVE));
+          return SolverReport.Status.SOLVED;
+        }
+        if(kind == OPEN) {
+          nodes.add((int) (child >>> MOVE_BITS), (int) (child & LAST_MOVE));
+        }
+        else if(kind == PRUNED) {
+          search.pruned++;
+        }
+      }
+    }
+    return null;
+  }
+}
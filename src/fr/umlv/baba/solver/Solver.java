@@ -0,0 +1,186 @@
+package fr.umlv.baba.solver;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import fr.umlv.baba.Board;
+import fr.umlv.baba.Deadlocks;
+import fr.umlv.baba.Direction;
+
+
+/**
+ * Solver searches the shortest sequence of moves that wins a level, by a breadth-first search on the states of a Board.
+ * The states are not copied : a state is a node with its parent and the move that reached it, and the solver goes
+ * from a node to the next one by undoing the moves up to their common ancestor and playing the moves down.
+ * The visited states are known by their fingerprint (see Board.stateHash) in a FingerprintTable.
+ * On demand, the states where a word needed to win is stuck (see Deadlocks) are not expanded.
+ *
+ * @see Board
+ * @see FingerprintTable
+ * @see Deadlocks
+ * @see SolverReport
+ */
+public class Solver {
+  /**
+   * The directions tried from each state, in this order : the names of the values of Direction.
+   */
+  public static final String[] DIRECTIONS = Arrays.stream(Direction.values()).map(Direction::name).toArray(String[]::new);
+
+  private final long nodeBudget;
+  private final long memoryBudget;
+  private final long timeBudget;
+  private final boolean pruning;
+
+  /**
+   * A Solver stops when it has visited too many states or used too much memory.
+   * @param nodeBudget
+   *              The maximum number of different states visited.
+   * @param memoryBudget
+   *              The maximum memory used by the states, in bytes.
+   * @param pruning
+   *              true to not expand the deadlocks. The detection of the deadlocks supposes the walls do not change,
+   *              so a level that needs to change them may be reported UNSOLVABLE.
+   */
+  public Solver(long nodeBudget, long memoryBudget, boolean pruning) {
+    this(nodeBudget, memoryBudget, Long.MAX_VALUE, pruning);
+  }
+
+  /**
+   * A Solver stops when it has visited too many states, used too much memory or searched for too long.
+   * The time is checked every 256 states expanded.
+   * @param nodeBudget
+   *              The maximum number of different states visited.
+   * @param memoryBudget
+   *              The maximum memory used by the states, in bytes.
+   * @param timeBudget
+   *              The maximum time of the search, in nanoseconds.
+   * @param pruning
+   *              true to not expand the deadlocks (see Solver(long, long, boolean)).
+   */
+  public Solver(long nodeBudget, long memoryBudget, long timeBudget, boolean pruning) {
+    if(nodeBudget <= 0 || memoryBudget <= 0 || timeBudget <= 0) {
+      throw new IllegalArgumentException("The budgets must be positive");
+    }
+    this.nodeBudget = nodeBudget;
+    this.memoryBudget = memoryBudget;
+    this.timeBudget = timeBudget;
+    this.pruning = pruning;
+  }
+
+  /**
+   * A Solver stops when it has visited too many states or used too much memory, it expands all the states.
+   * @param nodeBudget
+   *              The maximum number of different states visited.
+   * @param memoryBudget
+   *              The maximum memory used by the states, in bytes.
+   */
+  public Solver(long nodeBudget, long memoryBudget) {
+    this(nodeBudget, memoryBudget, false);
+  }
+
+  /**
+   * Search a shortest solution of a board. The board is used to play the moves, it is back to its first state at the end.
+   * During the search, the memory limit of the undo journal of the board is the memory budget, the limit of the caller is restored after.
+   * If the journal still forgets a move needed to go back up the tree, the search stops with MEMORY_BUDGET and
+   * the board is left in the state where it stopped.
+   *
+   * @param board
+   *              The board to solve, its rules are refreshed first.
+   * @return the report of the search.
+   *
+   * @see Board#setJournalLimit(long)
+   * @see SolverReport
+   */
+  public SolverReport solve(Board board) {
+    Objects.requireNonNull(board);
+    var limit = board.getJournalLimit();
+    board.setJournalLimit(memoryBudget);
+    try {
+      return this.search(board);
+    }
+    finally {
+      board.setJournalLimit(limit);
+    }
+  }
+
+  /**
+   * Search a shortest solution of a board, its undo journal is already able to keep the moves.
+   * @param board
+   *              The board to solve.
+   * @return the report of the search.
+   */
+  private SolverReport search(Board board) {
+    var start = System.nanoTime();
+    board.refreshRules();
+    var walker = new Walker(board);
+    var deadlocks = pruning ? new Deadlocks(board) : null;
+    var pruned = 0L;
+    var nodes = new Nodes();
+    var table = new FingerprintTable(1024);
+    table.add(board.stateHash());
+    nodes.add(-1, -1);
+    var peakMemory = table.bytes() + nodes.bytesFor(0);
+    var status = SolverReport.Status.UNSOLVABLE;
+    var solution = -1;
+    var lost = false;
+    if(board.isWin()) {
+      status = SolverReport.Status.SOLVED;
+      solution = 0;
+    }
+    search:
+    for(var node = 0; solution == -1 && node < nodes.count(); node++) {
+      if((node & 0xFF) == 0 && System.nanoTime() - start > timeBudget) {
+        status = SolverReport.Status.TIME_BUDGET;
+        break;
+      }
+      if(!walker.goTo(nodes, node)) {
+        status = SolverReport.Status.MEMORY_BUDGET;
+        lost = true;
+        break;
+      }
+      for(var move = 0; move < DIRECTIONS.length; move++) {
+        walker.play(move);
+        var fingerprint = board.stateHash();
+        if(!table.contains(fingerprint)) {
+          var win = board.isWin();
+          if(!win && table.size() >= nodeBudget) {
+            lost = !walker.undo();
+            status = SolverReport.Status.NODE_BUDGET;
+            break search;
+          }
+          var memory = table.bytesForNextAdd() + nodes.bytesFor(1);
+          if(memory > memoryBudget) {
+            lost = !walker.undo();
+            status = SolverReport.Status.MEMORY_BUDGET;
+            break search;
+          }
+          table.add(fingerprint);
+          peakMemory = Math.max(peakMemory, memory);
+          if(win) {
+            solution = nodes.add(node, move);
+            status = SolverReport.Status.SOLVED;
+            lost = !walker.undo();
+            break search;
+          }
+          if(!board.isLoose()) {
+            if(deadlocks != null && deadlocks.isDeadlocked()) {
+              pruned++;
+            }
+            else {
+              nodes.add(node, move);
+            }
+          }
+        }
+        if(!walker.undo()) {
+          status = SolverReport.Status.MEMORY_BUDGET;
+          lost = true;
+          break search;
+        }
+      }
+    }
+    if(!lost) {
+      walker.goTo(nodes, 0);
+    }
+    return new SolverReport(status, nodes.path(solution), walker.played(), table.size(), pruned, System.nanoTime() - start, peakMemory);
+  }
+}
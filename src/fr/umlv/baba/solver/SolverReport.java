@@ -0,0 +1,157 @@
+package fr.umlv.baba.solver;
+
+import java.util.List;
+import java.util.Objects;
+
+
+/**
+ * SolverReport is the result of a search : how it ended, the solution if one was found and the cost of the search.
+ *
+ * @see Solver
+ */
+public final class SolverReport {
+  /**
+   * How a search ended.
+   */
+  public enum Status {
+    /**
+     * A solution was found, it is one of the shortest.
+     */
+    SOLVED,
+    /**
+     * All the reachable states were visited without a win.
+     */
+    UNSOLVABLE,
+    /**
+     * The search stopped because it reached the maximum number of states.
+     */
+    NODE_BUDGET,
+    /**
+     * The search stopped because it reached the maximum memory.
+     */
+    MEMORY_BUDGET,
+    /**
+     * The search stopped because it reached the maximum time.
+     */
+    TIME_BUDGET
+  }
+
+  private final Status status;
+  private final List<String> path;
+  private final long nodes;
+  private final long states;
+  private final long pruned;
+  private final long elapsed;
+  private final long peakMemory;
+
+  /**
+   * A SolverReport is built by the solver at the end of a search.
+   * @param status
+   *              How the search ended.
+   * @param path
+   *              The moves of the solution ("LEFT", "RIGHT", "UP", "DOWN"), empty if there is no solution.
+   * @param nodes
+   *              The number of moves tried.
+   * @param states
+   *              The number of different states visited.
+   * @param pruned
+   *              The number of states not expanded because they are deadlocks.
+   * @param elapsed
+   *              The duration of the search, in nanoseconds.
+   * @param peakMemory
+   *              The maximum memory used by the states, in bytes.
+   */
+  SolverReport(Status status, List<String> path, long nodes, long states, long pruned, long elapsed, long peakMemory) {
+    this.status = Objects.requireNonNull(status);
+    this.path = List.copyOf(path);
+    this.nodes = nodes;
+    this.states = states;
+    this.pruned = pruned;
+    this.elapsed = elapsed;
+    this.peakMemory = peakMemory;
+  }
+
+  /**
+   * A getter to know how the search ended.
+   *
+   * @return status
+   */
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * A getter to know the moves of the solution.
+   *
+   * @return path, an unmodifiable list of directions ("LEFT", "RIGHT", "UP", "DOWN").
+   */
+  public List<String> getPath() {
+    return path;
+  }
+
+  /**
+   * A getter to know the number of moves tried.
+   *
+   * @return nodes
+   */
+  public long getNodes() {
+    return nodes;
+  }
+
+  /**
+   * A getter to know the number of different states visited.
+   *
+   * @return states
+   */
+  public long getStates() {
+    return states;
+  }
+
+  /**
+   * A getter to know the number of states not expanded because they are deadlocks.
+   *
+   * @return pruned, 0 if the search did not look for deadlocks.
+   */
+  public long getPruned() {
+    return pruned;
+  }
+
+  /**
+   * A getter to know the duration of the search.
+   *
+   * @return elapsed, in nanoseconds.
+   */
+  public long getElapsed() {
+    return elapsed;
+  }
+
+  /**
+   * A getter to know the maximum memory used by the states during the search.
+   *
+   * @return peakMemory, in bytes.
+   */
+  public long getPeakMemory() {
+    return peakMemory;
+  }
+
+  /**
+   * Compute the speed of the search.
+   *
+   * @return the number of moves tried by second.
+   */
+  public double nodesPerSecond() {
+    return elapsed == 0 ? 0 : nodes * 1e9 / elapsed;
+  }
+
+  /**
+   * Display the result and the cost of the search.
+   *
+   * @return a String like "SOLVED in 12 moves : RIGHT RIGHT ...".
+   */
+  @Override
+  public String toString() {
+    return status + (status == Status.SOLVED ? " in " + path.size() + " moves : " + String.join(" ", path) : "") + "\n"
+        + nodes + " nodes, " + states + " states, " + (pruned == 0 ? "" : pruned + " pruned, ") + elapsed / 1_000_000 + " ms, " + (long) nodesPerSecond() + " nodes/s, "
+        + peakMemory / 1024 + " KiB peak";
+  }
+}
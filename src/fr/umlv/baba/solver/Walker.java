@@ -0,0 +1,120 @@
+package fr.umlv.baba.solver;
+
+import java.util.Arrays;
+
+import fr.umlv.baba.Board;
+import fr.umlv.baba.Direction;
+
+
+/**
+ * Walker moves a Board from a node of a search to another one.
+ * It undoes the moves up to the common ancestor of the two nodes, then it plays the moves down to the new node,
+ * so the states are never copied. A Walker is used by a single thread.
+ *
+ * @see Nodes
+ * @see Board
+ */
+final class Walker {
+  private final Board board;
+  private final Direction[] directions = Direction.values();
+  private int current;
+  private int[] path = new int[16];
+  private long played;
+
+  /**
+   * A Walker starts at the first node, the current state of the board.
+   * @param board
+   *              The board, its rules must be refreshed.
+   */
+  Walker(Board board) {
+    this.board = board;
+  }
+
+  /**
+   * A getter to know the board of the walker.
+   * @return board
+   */
+  Board board() {
+    return board;
+  }
+
+  /**
+   * A getter to know the number of moves played by the walker.
+   * @return played
+   */
+  long played() {
+    return played;
+  }
+
+  /**
+   * Play a move on the board and refresh its rules. The move can be undone with undo.
+   * @param move
+   *              The index of the direction (see Solver.DIRECTIONS).
+   */
+  void play(int move) {
+    board.move(directions[move]);
+    board.refreshRules();
+    played++;
+  }
+
+  /**
+   * Undo the last move on the board.
+   * @return false if the move was forgotten by the undo journal of the board, too small, the board did not change.
+   */
+  boolean undo() {
+    return board.undo();
+  }
+
+  /**
+   * Change the state of the board to the state of a node, through the common ancestor of the current node and this node.
+   * @param nodes
+   *              The tree of the nodes, it must contain the current node and this node.
+   * @param node
+   *              The index of the node.
+   * @return false if a move can't be undone (see undo), the board is then between the two nodes.
+   */
+  boolean goTo(Nodes nodes, int node) {
+    var from = current;
+    var to = node;
+    var length = 0;
+    while(nodes.depth(from) > nodes.depth(to)) {
+      if(!this.undo()) {
+        return false;
+      }
+      from = nodes.parent(from);
+    }
+    while(nodes.depth(to) > nodes.depth(from)) {
+      length = this.push(length, nodes.move(to));
+      to = nodes.parent(to);
+    }
+    while(from != to) {
+      if(!this.undo()) {
+        return false;
+      }
+      from = nodes.parent(from);
+      length = this.push(length, nodes.move(to));
+      to = nodes.parent(to);
+    }
+    for(var i = length - 1; i >= 0; i--) {
+      this.play(path[i]);
+    }
+    current = node;
+    return true;
+  }
+
+  /**
+   * Remember a move to play after going up to the common ancestor.
+   * @param length
+   *              The number of moves already remembered.
+   * @param move
+   *              The index of the direction.
+   * @return the new number of moves.
+   */
+  private int push(int length, int move) {
+    if(length == path.length) {
+      path = Arrays.copyOf(path, length * 2);
+    }
+    path[length] = move;
+    return length + 1;
+  }
+}